@@ -0,0 +1,167 @@
+package backEnd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+// The ArtifactStore class keeps what the backEnd modules made from each webpage on disk: its chains of keywords and its expanded features
+// Each URL is stored under the SHA-1 hash of the URL like in PageCache, together with the hash of the sentences it was made from, so a webpage whose text changed is made again
+// A store of queries keeps the same artifacts for each query line, and also the score of each webpage against the query keyed by the URL and the hash of the webpage
+// The Decomposer options the features were made with are stored as well, features made with other options are made again like the ones of a changed webpage
+public class ArtifactStore {
+	private static final String SPLIT_SYMBOL = "`"; // Splits the URL from the hash in the score keys
+	private static final String META = ".properties";
+	private static final String CHAINS = ".chains" + BinaryRecords.EXTENSION;
+	private static final String FEATURES = ".features" + BinaryRecords.EXTENSION;
+	private static final String SCORES = ".scores" + META;
+	
+	private File directory;
+	
+	public ArtifactStore(File directory) throws IOException {
+		this.directory = directory;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create artifact directory " + directory);
+		}
+	}
+	
+	// The stored artifacts of a URL
+	public class Entry {
+		public final String url;
+		public final String contentHash; // Hash of the sentences the artifacts were made from
+		public final String options; // Decomposer options the features were made with, null for an entry stored before they were kept
+		private final String key;
+		
+		private Entry(String key, Properties meta) {
+			this.key = key;
+			this.url = meta.getProperty("url");
+			this.contentHash = meta.getProperty("contentHash");
+			this.options = meta.getProperty("options");
+		}
+		
+		// Output is the verb and noun records the Parser made
+		public List<FeatureRecord> chains() throws IOException {
+			return readRecords(file(this.key, CHAINS));
+		}
+		
+		// Output is the verb and noun records the Decomposer made
+		public List<FeatureRecord> features() throws IOException {
+			return readRecords(file(this.key, FEATURES));
+		}
+		
+		// Output is the scores stored by putScores, keyed by scoreKey
+		public Map<String, Double> scores() throws IOException {
+			Map<String, Double> scores = new LinkedHashMap<String, Double>();
+			File file = file(this.key, SCORES);
+			if (file.isFile()) {
+				Properties stored = StoreFiles.readMeta(file);
+				for (String name : stored.stringPropertyNames()) {
+					scores.put(name, Double.valueOf(stored.getProperty(name)));
+				}
+			}
+			return scores;
+		}
+	}
+	
+	// Looks up a URL
+	// Input is the URL, or the query line for a store of queries
+	// Output is the stored entry, or null if the URL is not stored
+	public Entry get(String url) {
+		String key = key(url);
+		File metaFile = file(key, META);
+		if (!metaFile.isFile()) {
+			return null;
+		}
+		try {
+			Properties meta = StoreFiles.readMeta(metaFile);
+			if (!url.equals(meta.getProperty("url"))) { // Different URL with the same hash
+				return null;
+			}
+			return new Entry(key, meta);
+		} catch (IOException e) {
+			return null; // Removed by another process, treat as not stored
+		}
+	}
+	
+	// Saves the artifacts of a URL, replacing the ones made from an older version of the webpage
+	// Input is the URL, the hash of its sentences from contentHash, the Decomposer options from Decomposer.options, the chains and the features
+	public void put(String url, String contentHash, String options, List<FeatureRecord> chains, List<FeatureRecord> features) throws IOException {
+		String key = key(url);
+		Properties meta = new Properties();
+		meta.setProperty("url", url);
+		meta.setProperty("contentHash", contentHash);
+		meta.setProperty("options", options);
+		meta.setProperty("stored", Long.toString(System.currentTimeMillis()));
+		file(key, META).delete(); // The entry does not count while its files are being replaced
+		file(key, SCORES).delete(); // Scores made with the old artifacts no longer hold
+		writeRecords(file(key, CHAINS), chains);
+		writeRecords(file(key, FEATURES), features);
+		StoreFiles.writeMeta(file(key, META), meta); // Written last, an entry only counts once this file exists
+	}
+	
+	// Saves the scores of the webpages against a query, replacing the stored ones
+	// Input is the entry of the query and the scores keyed by scoreKey
+	public void putScores(Entry entry, Map<String, Double> scores) throws IOException {
+		Properties stored = new Properties();
+		for (Map.Entry<String, Double> score : scores.entrySet()) {
+			stored.setProperty(score.getKey(), Double.toString(score.getValue()));
+		}
+		StoreFiles.writeMeta(file(entry.key, SCORES), stored);
+	}
+	
+	// Output is the key of the score of a webpage, which only matches the same version of the webpage
+	public static String scoreKey(String url, String contentHash) {
+		return url + SPLIT_SYMBOL + contentHash;
+	}
+	
+	// Output is the SHA-1 hash of the sentences of a webpage in hexadecimal, the markup around the text does not change it
+	public static String contentHash(List<String> sentences) {
+		StringBuilder text = new StringBuilder();
+		for (String sentence : sentences) {
+			text.append(sentence).append('\n');
+		}
+		return StoreFiles.sha1(text.toString());
+	}
+	
+	private File file(String key, String extension) {
+		return new File(this.directory, key + extension);
+	}
+	
+	private static String key(String url) {
+		return StoreFiles.sha1(url);
+	}
+	
+	private static List<FeatureRecord> readRecords(File file) throws IOException {
+		List<FeatureRecord> records = new ArrayList<FeatureRecord>();
+		BinaryRecords.RecordReader in = BinaryRecords.open(file.getPath());
+		try {
+			FeatureRecord record;
+			while ((record = in.read()) != null) {
+				records.add(record);
+			}
+		} finally {
+			in.close();
+		}
+		return records;
+	}
+	
+	private static void writeRecords(File file, List<FeatureRecord> records) throws IOException {
+		File temp = StoreFiles.temp(file);
+		try {
+			BinaryRecords.RecordWriter out = BinaryRecords.create(temp.getPath(), file.getPath()); // The extension of the file chooses the binary format
+			try {
+				for (FeatureRecord record : records) {
+					out.write(record);
+				}
+			} finally {
+				out.close();
+			}
+			StoreFiles.replace(temp, file);
+		} finally {
+			temp.delete(); // Already moved unless the write failed, such as on a full disk
+		}
+	}
+}
\ No newline at end of file
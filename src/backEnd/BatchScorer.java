@@ -0,0 +1,266 @@
+package backEnd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.mit.jwi.IRAMDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
+
+// The BatchScorer class scores a batch of query files and does the work the queries have in common only once
+// Each distinct line of the query files (a URL or a query) is fetched, parsed and decomposed once, each distinct sentence is tagged once, and each distinct term and part-of-speech is expanded once by the expansion cache as long as the cache holds every term of the batch
+// The decomposed records are then handed to every query listing them, so the scores are the same as scoring each query file on its own
+public class BatchScorer {
+	private static final int FETCH_THREADS = 8; // The number of webpages downloaded at the same time
+	
+	private Parser parser;
+	private Decomposer decomposer;
+	private PageFetcher fetcher;
+	private ExecutorService threads; // Tags, parses and decomposes the distinct lines
+	private ConcurrentHashMap<String, Future<String>> taggedSentences = new ConcurrentHashMap<String, Future<String>>(); // Tagged form of each distinct sentence of the batch
+	
+	// Counters of the last batch, the references count the work without deduplication
+	private long queryFiles;
+	private long lineReferences;
+	private long distinctLines;
+	private long failedLines;
+	private AtomicLong sentenceReferences = new AtomicLong();
+	private long chainReferences;
+	private AtomicLong chainsDecomposed = new AtomicLong();
+	private long expansionLookups;
+	private long expansionsComputed;
+	
+	// Input is the parser and the decomposer whose copies do the work, the fetcher for the webpages and the threads that tag, parse and decompose them
+	public BatchScorer(Parser parser, Decomposer decomposer, PageFetcher fetcher, ExecutorService threads) {
+		this.parser = parser;
+		this.decomposer = decomposer;
+		this.fetcher = fetcher;
+		this.threads = threads;
+	}
+	
+	// Scores every query file of the batch
+	// Input is the lines of each query file in the format of the dummyText query files
+	// Output is the scores of each query file in the order of its URLs, webpages that could not be fetched score NaN
+	public List<List<ScoreRecord>> score(List<List<String>> queries) throws IOException, InterruptedException {
+		ExpansionCache expansions = this.decomposer.getExpansions();
+		long hits = expansions.getHits();
+		long misses = expansions.getMisses();
+		this.taggedSentences.clear();
+		this.sentenceReferences.set(0);
+		this.chainsDecomposed.set(0);
+		
+		// Every distinct line once, in the order it first appears
+		Set<String> lines = new LinkedHashSet<String>();
+		this.lineReferences = 0;
+		for (List<String> query : queries) {
+			for (String line : query) {
+				line = line.trim();
+				if (!line.isEmpty()) {
+					lines.add(line);
+					this.lineReferences++;
+				}
+			}
+		}
+		List<String> distinct = new ArrayList<String>(lines);
+		List<Future<PageRecord>> pages = this.fetcher.submitAll(distinct); // The query lines are passed through by the fetcher
+		Map<String, Future<List<FeatureRecord>>> records = new LinkedHashMap<String, Future<List<FeatureRecord>>>();
+		for (int l = 0; l < distinct.size(); l++) {
+			records.put(distinct.get(l), this.threads.submit(new LineTask(pages.get(l))));
+		}
+		
+		// Hand the records of each line to every query listing it
+		List<List<ScoreRecord>> scores = new ArrayList<List<ScoreRecord>>();
+		Map<String, List<FeatureRecord>> done = new LinkedHashMap<String, List<FeatureRecord>>();
+		this.chainReferences = 0;
+		for (List<String> query : queries) {
+			final List<ScoreRecord> queryScores = new ArrayList<ScoreRecord>();
+			SemanticDistance.PageReader reader = new SemanticDistance.PageReader() {
+				protected void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) {
+					queryScores.add(new ScoreRecord(url, SemanticDistance.score(this.queryNouns, this.queryVerbs, nounTwo, verbTwo)));
+				}
+			};
+			for (String line : query) {
+				line = line.trim();
+				if (line.isEmpty()) {
+					continue;
+				}
+				List<FeatureRecord> lineRecords = done.get(line);
+				if (lineRecords == null && !done.containsKey(line)) {
+					lineRecords = get(records.get(line));
+					done.put(line, lineRecords);
+				}
+				if (lineRecords != null) {
+					for (FeatureRecord record : lineRecords) {
+						reader.add(record);
+						this.chainReferences++;
+					}
+				} else { // A line that could not be fetched has no records, it still gets a score so every URL keeps its line
+					queryScores.add(ScoreRecord.failed(line));
+				}
+			}
+			reader.finish();
+			scores.add(queryScores);
+		}
+		
+		this.queryFiles = queries.size();
+		this.distinctLines = distinct.size();
+		this.failedLines = 0;
+		for (List<FeatureRecord> lineRecords : done.values()) {
+			if (lineRecords == null) {
+				this.failedLines++;
+			}
+		}
+		this.expansionLookups = expansions.getHits() - hits + expansions.getMisses() - misses;
+		this.expansionsComputed = expansions.getMisses() - misses;
+		return scores;
+	}
+	
+	private static List<FeatureRecord> get(Future<List<FeatureRecord>> result) throws InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause()); // LineTask only throws InterruptedException
+		}
+	}
+	
+	// Tags, parses and decomposes the webpage or the query of one distinct line on a parser and a decomposer of its own
+	// The query time budget counts from when the line is fetched, so a line late in a large batch is not cut shorter than when its query file is scored on its own
+	// Output is the decomposed verb and noun records, or null if the line could not be fetched
+	private class LineTask implements Callable<List<FeatureRecord>> {
+		private Future<PageRecord> page;
+		
+		LineTask(Future<PageRecord> page) {
+			this.page = page;
+		}
+		
+		public List<FeatureRecord> call() throws InterruptedException {
+			PageRecord page = PageFetcher.get(this.page);
+			if (page.isFailed()) {
+				System.err.println("Could not fetch " + page.url + ": " + page.error);
+				return null;
+			}
+			long deadline = BatchScorer.this.decomposer.queryDeadline();
+			Parser parser = BatchScorer.this.parser.copy();
+			List<String> tagged = new ArrayList<String>();
+			for (String sentence : page.sentences) {
+				tagged.add(tag(parser, sentence));
+			}
+			List<FeatureRecord> keywords = parser.parseTagged(page.url, tagged); // Empty records for a webpage without keywords, which scores NaN
+			Decomposer decomposer = BatchScorer.this.decomposer.copy();
+			List<FeatureRecord> features = new ArrayList<FeatureRecord>();
+			for (FeatureRecord record : keywords) {
+				features.add(decomposer.decompose(record, deadline));
+				BatchScorer.this.chainsDecomposed.incrementAndGet();
+			}
+			return features;
+		}
+	}
+	
+	// Tags a sentence, or waits for the thread that is already tagging the same sentence
+	private String tag(final Parser parser, final String sentence) throws InterruptedException {
+		this.sentenceReferences.incrementAndGet();
+		FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+			public String call() {
+				return parser.tagSentence(sentence);
+			}
+		});
+		Future<String> tagged = this.taggedSentences.putIfAbsent(sentence, task);
+		if (tagged == null) { // This thread is the first to meet the sentence
+			tagged = task;
+			task.run();
+		}
+		try {
+			return tagged.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause()); // tagSentence throws no checked exceptions
+		}
+	}
+	
+	// Output is how much work the last batch saved, each count without deduplication next to the work actually done
+	public String toString() {
+		StringBuilder summary = new StringBuilder("BatchScorer: ").append(this.queryFiles).append(" query files\n");
+		summary.append(String.format("fetched and parsed %d distinct lines instead of %d (%d saved, %d failed)%n", this.distinctLines, this.lineReferences, this.lineReferences - this.distinctLines, this.failedLines));
+		summary.append(String.format("tagged %d distinct sentences instead of %d (%d saved)%n", this.taggedSentences.size(), this.sentenceReferences.get(), this.sentenceReferences.get() - this.taggedSentences.size()));
+		summary.append(String.format("decomposed %d keyword lists instead of %d (%d saved)%n", this.chainsDecomposed.get(), this.chainReferences, this.chainReferences - this.chainsDecomposed.get()));
+		summary.append(String.format("expanded %d terms for %d expansion lookups (%d served by the expansion cache)", this.expansionsComputed, this.expansionLookups, this.expansionLookups - this.expansionsComputed));
+		return summary.toString();
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) { // See if the number of command line input is correct
+			System.out.println("java BatchScorer <output folder> <query textfile path>...");
+			return;
+		}
+		File outputFolder = new File(args[0]);
+		if (!outputFolder.isDirectory() && !outputFolder.mkdirs()) {
+			throw new IOException("Cannot create output folder " + outputFolder);
+		}
+		
+		// The decomposer reads the compiled snapshot of the dictionary if there is one
+		SynsetGraph graph;
+		IRAMDictionary dictionary = null;
+		if (Decomposer.SNAPSHOT_PATH.isFile()) {
+			graph = CompiledSynsetGraph.open(Decomposer.SNAPSHOT_PATH);
+		} else {
+			dictionary = new RAMDictionary(Decomposer.DICTIONARY_PATH, ILoadPolicy.NO_LOAD);
+			dictionary.open();
+			graph = new JwiSynsetGraph(dictionary);
+		}
+		ExecutorService fetchThreads = Executors.newFixedThreadPool(FETCH_THREADS);
+		ExecutorService workThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try { // The threads are stopped even if the batch fails, or else the program would not exit
+			ExpansionCache expansions = new ExpansionCache(graph, ExpansionCache.DEFAULT_MAX_ENTRIES);
+			if (WithoutMapReduce.EXPANSION_CACHE_PATH.isFile()) {
+				expansions.load(WithoutMapReduce.EXPANSION_CACHE_PATH);
+			}
+			PageFetcher fetcher = new PageFetcher(fetchThreads);
+			fetcher.setCache(new PageCache(WithoutMapReduce.PAGE_CACHE_PATH, WithoutMapReduce.PAGE_CACHE_BYTES, WithoutMapReduce.PAGE_CACHE_TTL));
+			BatchScorer batch = new BatchScorer(new Parser(), new Decomposer(expansions), fetcher, workThreads);
+			
+			List<List<String>> queries = new ArrayList<List<String>>();
+			for (int q = 1; q < args.length; q++) {
+				queries.add(LineReader.readLines(args[q]));
+			}
+			List<List<ScoreRecord>> scores = batch.score(queries);
+			
+			// One distance file for each query file, with the scores in the order of its URLs
+			for (int q = 0; q < queries.size(); q++) {
+				StringBuilder output = new StringBuilder();
+				for (ScoreRecord score : scores.get(q)) {
+					output.append(output.length() == 0 ? "" : "\n").append(score.toLine());
+				}
+				SemanticDistance.writeTxt(new File(outputFolder, new File(args[q + 1]).getName()).getPath(), output.toString());
+			}
+			
+			System.out.println(batch);
+			System.out.println(expansions);
+			expansions.save(WithoutMapReduce.EXPANSION_CACHE_PATH);
+		} finally {
+			fetchThreads.shutdown();
+			workThreads.shutdown();
+			if (dictionary != null) {
+				dictionary.close();
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,400 @@
+package backEnd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// The BinaryRecords class reads and writes keyword and feature records in a compact binary file, one record at a time
+// The file starts with a header and holds blocks of records, each block can be compressed on its own
+// A record is its length followed by the URL, the type, a flags byte, the terms and the weights if the record has them
+// Every string is written out in full the first time it appears and later only as its ID in the file, so the repeated terms, URLs and types of a file cost a few bytes each
+// The same readers and writers also handle the txt format, so a stage can take either format and the files can be converted both ways
+public class BinaryRecords {
+	public static final String EXTENSION = ".bin"; // Output paths ending with this are written in the binary format
+	public static final String COMPRESSED_EXTENSION = ".binz"; // Output paths ending with this are written in the binary format with compressed blocks
+	
+	private static final int MAGIC = 0x53535242; // "SSRB"
+	private static final int VERSION = 1;
+	private static final int COMPRESSED = 1; // Header flag, every block is compressed
+	private static final int TRUNCATED = 1; // Record flags
+	private static final int WEIGHTED = 2;
+	private static final int BLOCK_SIZE = 64 * 1024; // Bytes of records gathered before a block is written
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	// Takes records one at a time and writes them in either format
+	public abstract static class RecordWriter implements Closeable {
+		public abstract void write(FeatureRecord record) throws IOException;
+	}
+	
+	// Gives back records one at a time from either format
+	public abstract static class RecordReader implements Closeable {
+		// Output is the next record, or null at the end of the file
+		public abstract FeatureRecord read() throws IOException;
+	}
+	
+	// Opens a file for writing
+	// Input is the path, the binary format is used if it ends with EXTENSION or COMPRESSED_EXTENSION and the txt format otherwise
+	// Output is the writer, which has to be closed to write out the last records
+	public static RecordWriter create(String path) throws IOException {
+		return create(path, path);
+	}
+	
+	// Opens a file for writing in the format chosen by another path, such as a temporary file that is renamed to that path once written
+	public static RecordWriter create(String path, String formatPath) throws IOException {
+		if (formatPath.endsWith(EXTENSION) || formatPath.endsWith(COMPRESSED_EXTENSION)) {
+			return new BinaryWriter(new FileOutputStream(path), formatPath.endsWith(COMPRESSED_EXTENSION));
+		}
+		return new TxtWriter(new OutputStreamWriter(new FileOutputStream(path), UTF8));
+	}
+	
+	// Opens a file for reading, the format is found from the first bytes of the file
+	public static RecordReader open(String path) throws IOException {
+		if (isBinary(path)) {
+			return new BinaryReader(new FileInputStream(path));
+		}
+		return new TxtReader(new LineReader(path));
+	}
+	
+	// Output is true if the path is a file in the binary format
+	public static boolean isBinary(String path) throws IOException {
+		File file = new File(path);
+		if (!file.isFile() || file.length() < 4) {
+			return false;
+		}
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			return in.readInt() == MAGIC;
+		} finally {
+			in.close();
+		}
+	}
+	
+	// Copies every record of one file into another
+	// Output is the number of records copied
+	public static long copy(RecordReader in, RecordWriter out) throws IOException {
+		long count = 0;
+		FeatureRecord record;
+		while ((record = in.read()) != null) {
+			out.write(record);
+			count++;
+		}
+		return count;
+	}
+	
+	// Writes the lines of the keywords/features txt files, the last line has no newline like the files written by the stages
+	private static class TxtWriter extends RecordWriter {
+		private Writer out;
+		private boolean first = true;
+		
+		TxtWriter(Writer out) {
+			this.out = new BufferedWriter(out);
+		}
+		
+		public void write(FeatureRecord record) throws IOException {
+			if (!this.first) {
+				this.out.write('\n');
+			}
+			this.first = false;
+			this.out.write(record.toLine());
+		}
+		
+		public void close() throws IOException {
+			this.out.close();
+		}
+	}
+	
+	// Reads the lines of the keywords/features txt files, empty lines are skipped
+	private static class TxtReader extends RecordReader {
+		private LineReader in;
+		
+		TxtReader(LineReader in) {
+			this.in = in;
+		}
+		
+		public FeatureRecord read() throws IOException {
+			String line;
+			while ((line = this.in.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty()) {
+					return FeatureRecord.parse(line);
+				}
+			}
+			return null;
+		}
+		
+		public void close() throws IOException {
+			this.in.close();
+		}
+	}
+	
+	// Writes the binary format, the records are gathered into blocks in memory
+	private static class BinaryWriter extends RecordWriter {
+		private DataOutputStream out;
+		private Deflater deflater; // null if the blocks are not compressed
+		private Map<String, Integer> strings = new HashMap<String, Integer>(); // ID of each string written so far
+		private ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+		private ByteArrayOutputStream record = new ByteArrayOutputStream();
+		private byte[] compressed = new byte[0];
+		
+		BinaryWriter(FileOutputStream file, boolean compress) throws IOException {
+			this.out = new DataOutputStream(new BufferedOutputStream(file));
+			this.deflater = compress ? new Deflater() : null;
+			this.out.writeInt(MAGIC);
+			this.out.writeByte(VERSION);
+			this.out.writeByte(compress ? COMPRESSED : 0);
+		}
+		
+		public void write(FeatureRecord record) throws IOException {
+			this.record.reset();
+			writeString(record.url);
+			writeString(record.type);
+			writeVarLong(this.record, (record.truncated ? TRUNCATED : 0) | (record.weights != null ? WEIGHTED : 0));
+			writeVarLong(this.record, record.terms.size());
+			for (String term : record.terms) {
+				writeString(term);
+			}
+			if (record.weights != null) {
+				for (long weight : record.weights) {
+					writeVarLong(this.record, (weight << 1) ^ (weight >> 63)); // Zigzag, so the negative legacy weights stay short
+				}
+			}
+			writeVarLong(this.block, this.record.size());
+			this.record.writeTo(this.block);
+			if (this.block.size() >= BLOCK_SIZE) {
+				flushBlock();
+			}
+		}
+		
+		// A string seen before is written as its ID plus one, a new string as 0 followed by its UTF-8 bytes
+		private void writeString(String value) {
+			Integer id = this.strings.get(value);
+			if (id != null) {
+				writeVarLong(this.record, id + 1);
+				return;
+			}
+			this.strings.put(value, this.strings.size());
+			byte[] bytes = value.getBytes(UTF8);
+			writeVarLong(this.record, 0);
+			writeVarLong(this.record, bytes.length);
+			this.record.write(bytes, 0, bytes.length);
+		}
+		
+		// A block is its length before and after compression followed by its bytes
+		private void flushBlock() throws IOException {
+			if (this.block.size() == 0) {
+				return;
+			}
+			byte[] raw = this.block.toByteArray();
+			this.out.writeInt(raw.length);
+			if (this.deflater == null) {
+				this.out.writeInt(raw.length);
+				this.out.write(raw);
+			} else {
+				if (this.compressed.length < raw.length + 64) {
+					this.compressed = new byte[raw.length + raw.length / 8 + 64]; // Room for data that does not compress
+				}
+				this.deflater.reset();
+				this.deflater.setInput(raw);
+				this.deflater.finish();
+				int length = this.deflater.deflate(this.compressed);
+				if (!this.deflater.finished()) {
+					throw new IOException("Compressed block does not fit its buffer");
+				}
+				this.out.writeInt(length);
+				this.out.write(this.compressed, 0, length);
+			}
+			this.block.reset();
+		}
+		
+		// Writes the last block and the end marker
+		public void close() throws IOException {
+			try {
+				flushBlock();
+				this.out.writeInt(0);
+			} finally {
+				this.out.close();
+				if (this.deflater != null) {
+					this.deflater.end();
+				}
+			}
+		}
+	}
+	
+	// Reads the binary format one block at a time
+	private static class BinaryReader extends RecordReader {
+		private DataInputStream in;
+		private Inflater inflater; // null if the blocks are not compressed
+		private List<String> strings = new ArrayList<String>(); // The strings read so far by ID
+		private byte[] block = new byte[0];
+		private byte[] compressed = new byte[0];
+		private int length; // Bytes in the current block
+		private int position; // Next byte to read in the current block
+		private boolean ended;
+		
+		BinaryReader(InputStream file) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(file));
+			if (this.in.readInt() != MAGIC) {
+				throw new IOException("Not a binary records file");
+			}
+			int version = this.in.readByte();
+			if (version != VERSION) {
+				throw new IOException("Unknown binary records version " + version);
+			}
+			this.inflater = (this.in.readByte() & COMPRESSED) != 0 ? new Inflater() : null;
+		}
+		
+		public FeatureRecord read() throws IOException {
+			if (this.position == this.length && !nextBlock()) {
+				return null;
+			}
+			int end = (int) readVarLong();
+			end += this.position;
+			String url = readString();
+			String type = readString();
+			int flags = (int) readVarLong();
+			int count = (int) readVarLong();
+			List<String> terms = new ArrayList<String>(count);
+			for (int t = 0; t < count; t++) {
+				terms.add(readString());
+			}
+			long[] weights = null;
+			if ((flags & WEIGHTED) != 0) {
+				weights = new long[count];
+				for (int t = 0; t < count; t++) {
+					long zigzag = readVarLong();
+					weights[t] = (zigzag >>> 1) ^ -(zigzag & 1);
+				}
+			}
+			if (this.position != end) {
+				throw new IOException("Corrupt binary record of " + url);
+			}
+			return new FeatureRecord(url, type, terms, (flags & TRUNCATED) != 0, weights);
+		}
+		
+		// Output is false at the end marker
+		private boolean nextBlock() throws IOException {
+			if (this.ended) {
+				return false;
+			}
+			int raw;
+			try {
+				raw = this.in.readInt();
+			} catch (EOFException e) {
+				throw new IOException("Binary records file ends without its end marker", e);
+			}
+			if (raw == 0) {
+				this.ended = true;
+				return false;
+			}
+			int stored = this.in.readInt();
+			if (this.block.length < raw) {
+				this.block = new byte[raw];
+			}
+			if (this.inflater == null) {
+				this.in.readFully(this.block, 0, raw);
+			} else {
+				if (this.compressed.length < stored) {
+					this.compressed = new byte[stored];
+				}
+				this.in.readFully(this.compressed, 0, stored);
+				this.inflater.reset();
+				this.inflater.setInput(this.compressed, 0, stored);
+				try {
+					if (this.inflater.inflate(this.block, 0, raw) != raw) {
+						throw new IOException("Corrupt compressed block");
+					}
+				} catch (DataFormatException e) {
+					throw new IOException("Corrupt compressed block", e);
+				}
+			}
+			this.length = raw;
+			this.position = 0;
+			return true;
+		}
+		
+		private String readString() throws IOException {
+			int id = (int) readVarLong();
+			if (id > 0) {
+				if (id > this.strings.size()) {
+					throw new IOException("Unknown string ID " + (id - 1));
+				}
+				return this.strings.get(id - 1);
+			}
+			int bytes = (int) readVarLong();
+			String value = new String(this.block, this.position, bytes, UTF8);
+			this.position += bytes;
+			this.strings.add(value);
+			return value;
+		}
+		
+		// Seven bits at a time, lowest first, the top bit of a byte is set if more bytes follow
+		private long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				if (this.position >= this.length) {
+					throw new IOException("Binary record runs past its block");
+				}
+				byte b = this.block[this.position++];
+				value |= (long) (b & 0x7f) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new IOException("Corrupt number in binary record");
+		}
+		
+		public void close() throws IOException {
+			this.in.close();
+			if (this.inflater != null) {
+				this.inflater.end();
+			}
+		}
+	}
+	
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+	
+	// Converts a keywords/features file between the txt and the binary format
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) { // See if the number of command line input is correct
+			System.out.println("java BinaryRecords <input path, txt or binary> <output path, binary if it ends with " + EXTENSION + " or compressed binary if it ends with " + COMPRESSED_EXTENSION + ">");
+			return;
+		}
+		RecordReader in = open(args[0]);
+		try {
+			RecordWriter out = create(args[1]);
+			try {
+				System.out.println(copy(in, out) + " records copied");
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
\ No newline at end of file
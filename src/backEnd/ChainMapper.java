@@ -0,0 +1,22 @@
+package backEnd;
+
+// The ChainMapper class runs two mappers one after the other inside the same map task, like the ChainMapper of Hadoop
+// Every pair written by the first mapper is handed straight to the second one, so the records in between are never spilled
+// I is the type of the input records, A the type of the values in between and V the type of the values written by the second mapper
+public class ChainMapper<I, A, V> implements Mapper<I, V> {
+	private Mapper<I, A> first;
+	private Mapper<KeyValue<A>, V> second;
+	
+	public ChainMapper(Mapper<I, A> first, Mapper<KeyValue<A>, V> second) {
+		this.first = first;
+		this.second = second;
+	}
+	
+	public void map(I input, final Emitter<V> out) throws Exception {
+		this.first.map(input, new Emitter<A>() {
+			public void emit(String key, A value) throws Exception {
+				ChainMapper.this.second.map(new KeyValue<A>(key, value), out);
+			}
+		});
+	}
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package backEnd;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// The Codec interface writes values to the spill files of a MapReduce job and reads them back, like a Hadoop Writable
+public interface Codec<T> {
+	void write(DataOutput out, T value) throws IOException;
+	
+	T read(DataInput in) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,378 @@
+package backEnd;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import edu.mit.jwi.IDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
+import edu.mit.jwi.item.IIndexWord;
+import edu.mit.jwi.item.ISynset;
+import edu.mit.jwi.item.ISynsetID;
+import edu.mit.jwi.item.IWord;
+import edu.mit.jwi.item.POS;
+
+// The CompiledSynsetGraph class reads the synset graph from a binary snapshot of WordNet instead of the dictionary files
+// The snapshot is made once with compile, every process then maps the file into memory, so opening it takes milliseconds and
+// processes on the same machine share its pages through the operating system
+// Synsets are numbered from 0, the relations and the words of all synsets are kept in compressed sparse row arrays:
+// the targets of relation r of synset s are relTarget[relStart[s * R + r] .. relStart[s * R + r + 1])
+// Reading the graph creates no objects apart from the lemma strings, which are made once and then remembered
+// The mapped file is only read, so one graph can be used by any number of threads
+public class CompiledSynsetGraph implements SynsetGraph {
+	private static final int MAGIC = 0x53594e47; // "SYNG"
+	private static final int VERSION = 1;
+	private static final int HEADER_INTS = 10;
+	private static final int R = RELATIONS.length;
+	
+	private ByteBuffer buffer;
+	private int synsetCount;
+	private int lemmaCount;
+	private int slotCount;
+	
+	// Byte position of each section in the file
+	private int synsetKeyBase; // JwiSynsetGraph ID of each synset
+	private int relStartBase;
+	private int relTargetBase;
+	private int wordStartBase;
+	private int wordLemmaBase;
+	private int lemmaStartBase;
+	private int slotBase; // Hash table from lemma and word type to index entry, -1 marks a free slot
+	private int entryLemmaBase;
+	private int entryPosBase;
+	private int entrySynsetBase;
+	private int charBase; // Characters of all lemmas, two bytes each
+	
+	private String[] lemmas; // Lemma strings already made
+	
+	private CompiledSynsetGraph(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a synset graph snapshot");
+		}
+		this.synsetCount = buffer.getInt(8);
+		int relTargetCount = buffer.getInt(12);
+		int wordCount = buffer.getInt(16);
+		this.lemmaCount = buffer.getInt(20);
+		int charCount = buffer.getInt(24);
+		int entryCount = buffer.getInt(28);
+		this.slotCount = buffer.getInt(32);
+		
+		this.synsetKeyBase = HEADER_INTS * 4;
+		this.relStartBase = this.synsetKeyBase + this.synsetCount * 4;
+		this.relTargetBase = this.relStartBase + (this.synsetCount * R + 1) * 4;
+		this.wordStartBase = this.relTargetBase + relTargetCount * 4;
+		this.wordLemmaBase = this.wordStartBase + (this.synsetCount + 1) * 4;
+		this.lemmaStartBase = this.wordLemmaBase + wordCount * 4;
+		this.slotBase = this.lemmaStartBase + (this.lemmaCount + 1) * 4;
+		this.entryLemmaBase = this.slotBase + this.slotCount * 4;
+		this.entryPosBase = this.entryLemmaBase + entryCount * 4;
+		this.entrySynsetBase = this.entryPosBase + entryCount * 4;
+		this.charBase = this.entrySynsetBase + entryCount * 4;
+		if (buffer.limit() != this.charBase + charCount * 2) {
+			throw new IOException("Truncated synset graph snapshot");
+		}
+		this.lemmas = new String[this.lemmaCount];
+	}
+	
+	// Maps a snapshot into memory
+	// Input is the snapshot file made by compile
+	// Output is the graph
+	public static CompiledSynsetGraph open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			return new CompiledSynsetGraph(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length())); // The mapping stays valid after the file is closed
+		} finally {
+			raf.close();
+		}
+	}
+	
+	public int lookup(String term, POS pos) {
+		String lemma = normalize(term);
+		if (lemma.isEmpty()) {
+			return -1;
+		}
+		int mask = this.slotCount - 1;
+		int i = hash(lemma, pos.getNumber()) & mask;
+		int entry;
+		while ((entry = intAt(this.slotBase, i)) >= 0) {
+			if (intAt(this.entryPosBase, entry) == pos.getNumber() && lemmaEquals(intAt(this.entryLemmaBase, entry), lemma)) {
+				return intAt(this.entrySynsetBase, entry);
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+	
+	public int relatedCount(int synset, int relation) {
+		int row = synset * R + relation;
+		return intAt(this.relStartBase, row + 1) - intAt(this.relStartBase, row);
+	}
+	
+	public int related(int synset, int relation, int index) {
+		return intAt(this.relTargetBase, intAt(this.relStartBase, synset * R + relation) + index);
+	}
+	
+	public int wordCount(int synset) {
+		return intAt(this.wordStartBase, synset + 1) - intAt(this.wordStartBase, synset);
+	}
+	
+	public String word(int synset, int index) {
+		return lemma(intAt(this.wordLemmaBase, intAt(this.wordStartBase, synset) + index));
+	}
+	
+	public boolean isThreadSafe() {
+		return true;
+	}
+	
+	public int size() {
+		return this.synsetCount;
+	}
+	
+	// Output is the JWI synset ID of a synset, to look it up in the dictionary
+	public ISynsetID synsetID(int synset) {
+		return JwiSynsetGraph.synsetID(intAt(this.synsetKeyBase, synset));
+	}
+	
+	public String toString() {
+		return "CompiledSynsetGraph synsets=" + this.synsetCount + " lemmas=" + this.lemmaCount + " bytes=" + this.buffer.limit();
+	}
+	
+	private int intAt(int base, int index) {
+		return this.buffer.getInt(base + index * 4);
+	}
+	
+	private String lemma(int id) {
+		String lemma = this.lemmas[id];
+		if (lemma == null) { // Two threads may both make the string, either copy is fine
+			int start = intAt(this.lemmaStartBase, id);
+			int end = intAt(this.lemmaStartBase, id + 1);
+			char[] chars = new char[end - start];
+			for (int c = 0; c < chars.length; c++) {
+				chars[c] = this.buffer.getChar(this.charBase + (start + c) * 2);
+			}
+			lemma = new String(chars);
+			this.lemmas[id] = lemma;
+		}
+		return lemma;
+	}
+	
+	private boolean lemmaEquals(int id, String lemma) {
+		int start = intAt(this.lemmaStartBase, id);
+		int end = intAt(this.lemmaStartBase, id + 1);
+		if (end - start != lemma.length()) {
+			return false;
+		}
+		for (int c = 0; c < lemma.length(); c++) {
+			if (this.buffer.getChar(this.charBase + (start + c) * 2) != lemma.charAt(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Same lemma as JWI looks up: lower case, trimmed, and each run of whitespace replaced by an underscore
+	private static String normalize(String term) {
+		String lemma = term.toLowerCase().trim();
+		for (int c = 0; c < lemma.length(); c++) {
+			if (isWhitespace(lemma.charAt(c))) {
+				StringBuilder sb = new StringBuilder(lemma.length());
+				boolean space = false;
+				for (int d = 0; d < lemma.length(); d++) {
+					char letter = lemma.charAt(d);
+					if (isWhitespace(letter)) {
+						if (!space) {
+							sb.append('_');
+						}
+						space = true;
+					} else {
+						sb.append(letter);
+						space = false;
+					}
+				}
+				return sb.toString();
+			}
+		}
+		return lemma;
+	}
+	
+	// The characters matched by \s in a regular expression
+	private static boolean isWhitespace(char letter) {
+		return letter == ' ' || letter == '\t' || letter == '\n' || letter == 0x0b || letter == '\f' || letter == '\r';
+	}
+	
+	private static int hash(String lemma, int pos) {
+		int h = (lemma.hashCode() * 31 + pos) * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+	
+	// Writes a snapshot of the synsets, relations and index words of a dictionary
+	// Input is an open dictionary and the snapshot file to write
+	// Output is the number of synsets written, a word type missing from the dictionary is left out
+	public static int compile(IDictionary dictionary, File file) throws IOException {
+		// Number the synsets
+		List<ISynset> synsets = new ArrayList<ISynset>();
+		Map<Integer, Integer> ids = new HashMap<Integer, Integer>(); // JwiSynsetGraph ID to number
+		List<POS> compiled = new ArrayList<POS>();
+		for (POS pos : POS.values()) {
+			Iterator<ISynset> it;
+			try {
+				it = dictionary.getSynsetIterator(pos);
+				if (!it.hasNext()) {
+					continue;
+				}
+			} catch (RuntimeException e) { // The data file of this word type is missing
+				continue;
+			}
+			compiled.add(pos);
+			while (it.hasNext()) {
+				ISynset synset = it.next();
+				ids.put(JwiSynsetGraph.id(synset.getID()), synsets.size());
+				synsets.add(synset);
+			}
+		}
+		
+		Map<String, Integer> lemmaIds = new HashMap<String, Integer>();
+		List<String> lemmaList = new ArrayList<String>();
+		
+		// Relations and words of each synset
+		IntList synsetKeys = new IntList();
+		IntList relStart = new IntList();
+		IntList relTarget = new IntList();
+		IntList wordStart = new IntList();
+		IntList wordLemma = new IntList();
+		for (ISynset synset : synsets) {
+			synsetKeys.add(JwiSynsetGraph.id(synset.getID()));
+			for (int r = 0; r < R; r++) {
+				relStart.add(relTarget.size());
+				for (ISynsetID sid : synset.getRelatedSynsets(RELATIONS[r])) {
+					Integer target = ids.get(JwiSynsetGraph.id(sid));
+					if (target != null) { // Only missing when the target word type is missing
+						relTarget.add(target);
+					}
+				}
+			}
+			wordStart.add(wordLemma.size());
+			for (IWord word : synset.getWords()) {
+				wordLemma.add(lemmaId(word.getLemma(), lemmaIds, lemmaList));
+			}
+		}
+		relStart.add(relTarget.size());
+		wordStart.add(wordLemma.size());
+		
+		// The first sense of each index word
+		IntList entryLemma = new IntList();
+		IntList entryPos = new IntList();
+		IntList entrySynset = new IntList();
+		for (POS pos : compiled) {
+			Iterator<IIndexWord> it = dictionary.getIndexWordIterator(pos);
+			while (it.hasNext()) {
+				IIndexWord idxWord = it.next();
+				Integer synset = ids.get(JwiSynsetGraph.id(idxWord.getWordIDs().get(0).getSynsetID()));
+				if (synset != null) {
+					entryLemma.add(lemmaId(idxWord.getLemma(), lemmaIds, lemmaList));
+					entryPos.add(pos.getNumber());
+					entrySynset.add(synset);
+				}
+			}
+		}
+		int slotCount = 16;
+		while (slotCount < entryLemma.size() * 2) {
+			slotCount <<= 1;
+		}
+		int[] slots = new int[slotCount];
+		Arrays.fill(slots, -1);
+		for (int e = 0; e < entryLemma.size(); e++) {
+			int i = hash(lemmaList.get(entryLemma.get(e)), entryPos.get(e)) & (slotCount - 1);
+			while (slots[i] >= 0) {
+				i = (i + 1) & (slotCount - 1);
+			}
+			slots[i] = e;
+		}
+		
+		IntList lemmaStart = new IntList();
+		int chars = 0;
+		for (String lemma : lemmaList) {
+			lemmaStart.add(chars);
+			chars += lemma.length();
+		}
+		lemmaStart.add(chars);
+		
+		// Write to a temporary file first so a reader never maps half a snapshot
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(synsets.size());
+			out.writeInt(relTarget.size());
+			out.writeInt(wordLemma.size());
+			out.writeInt(lemmaList.size());
+			out.writeInt(chars);
+			out.writeInt(entryLemma.size());
+			out.writeInt(slotCount);
+			out.writeInt(0); // Reserved
+			synsetKeys.writeTo(out);
+			relStart.writeTo(out);
+			relTarget.writeTo(out);
+			wordStart.writeTo(out);
+			wordLemma.writeTo(out);
+			lemmaStart.writeTo(out);
+			for (int slot : slots) {
+				out.writeInt(slot);
+			}
+			entryLemma.writeTo(out);
+			entryPos.writeTo(out);
+			entrySynset.writeTo(out);
+			for (String lemma : lemmaList) {
+				out.writeChars(lemma);
+			}
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) {
+				throw new IOException("Cannot write snapshot " + file);
+			}
+		}
+		return synsets.size();
+	}
+	
+	private static int lemmaId(String lemma, Map<String, Integer> lemmaIds, List<String> lemmaList) {
+		Integer id = lemmaIds.get(lemma);
+		if (id == null) {
+			id = lemmaList.size();
+			lemmaIds.put(lemma, id);
+			lemmaList.add(lemma);
+		}
+		return id;
+	}
+	
+	// Compiles the WordNet dictionary into a snapshot, this only needs to be done once per WordNet version
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) { // See if the number of command line input is correct
+			System.out.println("java CompiledSynsetGraph <dict folder path> <snapshot path>");
+			return;
+		}
+		IDictionary dictionary = new RAMDictionary(new File(args[0]), ILoadPolicy.NO_LOAD);
+		dictionary.open();
+		long begin = System.currentTimeMillis();
+		File snapshot = new File(args[1]);
+		int synsets = compile(dictionary, snapshot);
+		dictionary.close();
+		System.out.println(synsets + " synsets compiled in " + (System.currentTimeMillis() - begin) + " ms, " + snapshot.length() + " bytes");
+	}
+}
\ No newline at end of file
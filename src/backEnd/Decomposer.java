@@ -2,6 +2,12 @@ package backEnd;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 import edu.mit.jwi.*;
 import edu.mit.jwi.data.ILoadPolicy;
@@ -14,10 +20,16 @@ public class Decomposer {
 	
 	// this path needs to point to the dict folder in Wordnet directory
 	public static final File DICTIONARY_PATH = new File("WordNet/2.1/dict");
-
+	
+	// this path points to the snapshot of the dictionary made by CompiledSynsetGraph, it is used instead of the dictionary when it exists
+	public static final File SNAPSHOT_PATH = new File("WordNet/2.1/synsets.graph");
+	
 	// this is a constant representing the knowledge limit of the average human for any topic in general, you should not change this
 	private static final Double KNOWLEDGE_LIMIT = Math.exp(4.2);
 	
+	// decomposeFile keeps at most this many records waiting to be written, enough to keep the threads of a ParallelDecomposer busy
+	private static final int PENDING_RECORDS = 256;
+	
 	// this stores the path to the document
 	public String path;
 	
@@ -26,108 +38,344 @@ public class Decomposer {
 	
 	// this stores the feature extracted from the document
 	public List<String> chain;
-	private List<Integer> chainWeight;
+	private Map<String, Integer> chainCount; // Number of times each word is in the chain, the input list can hold a word more than once
+	private LongList chainWeight;
 	private int chainMarker;
 	
 	// this stores the full history of the visited nodes during decomposition to ensure nodes are not revisited
-	private List<ISynsetID> chainSynsetID;
-	private List<Integer> weightSynsetID;
+	private IntList chainSynsetID;
+	private IntHashSet visitedSynsetID; // Same synsets as chainSynsetID, for constant time lookups
+	private LongList weightSynsetID;
 	private int synsetIDMarker;
 	
-	private IRAMDictionary dictionary;
+	private ExpansionCache expansions;
+	
+	// decomposition order, see decomposeBestFirst
+	private boolean bestFirst;
+	private int featureBudget = Integer.MAX_VALUE;
+	private int keywordCount; // The keywords at the start of the chain, never cut by the feature budget
+	
+	// time budgets in nanoseconds, 0 means no limit, a chain stops at the earlier of its own deadline and the deadline of its query
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+	private long timeBudget;
+	private long queryTimeBudget;
+	private long deadline = NO_DEADLINE; // System.nanoTime() at which the current chain stops
+	private boolean truncated; // The current chain was cut short
+	private DecompositionStats stats = new DecompositionStats();
+	
+	// weights are multiplied as longs that stop at Long.MAX_VALUE, the legacy option multiplies them as ints that wrap around like the original code
+	private boolean legacyWeights;
+	private long overflows; // Weight products that did not fit in an int
 	
 	// decomposer object to store intermediate result
 	public Decomposer(IRAMDictionary dict) {
-		this.dictionary = dict;
-		this.chain = new ArrayList<String>();
-		this.chainWeight = new ArrayList<Integer>();
-		this.chainSynsetID = new ArrayList<ISynsetID>();
-		this.weightSynsetID = new ArrayList<Integer>();
+		this(new JwiSynsetGraph(dict));
+	}
+	
+	// decomposer object reading the synsets from a graph, such as a CompiledSynsetGraph, without remembering them between chains
+	public Decomposer(SynsetGraph graph) {
+		this(new ExpansionCache(graph, 0));
+	}
+	
+	// decomposer object reading the synsets through a cache, which can be shared with other decomposers
+	public Decomposer(ExpansionCache expansions) {
+		this.expansions = expansions;
+		resetDecomposer();
+	}
+	
+	// Chooses between the original level by level decomposition and the best-first decomposition
+	public void setBestFirst(boolean bestFirst) {
+		this.bestFirst = bestFirst;
+	}
+	
+	// Sets the most features a chain may grow to, the keywords themselves are always kept
+	// Best-first decomposition keeps the lightest features, level by level decomposition keeps the features of the earlier levels
+	public void setFeatureBudget(int featureBudget) {
+		this.featureBudget = featureBudget;
+	}
+	
+	// Sets how long a single chain may take, 0 for no limit
+	public void setTimeBudget(long millis) {
+		this.timeBudget = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+	
+	// Sets how long all chains of a query may take together, 0 for no limit, counted from queryDeadline
+	public void setQueryTimeBudget(long millis) {
+		this.queryTimeBudget = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+	
+	// Starts the clock of a query
+	// Output is the deadline to give to submit for the chains of the query, NO_DEADLINE if there is no query time budget
+	public long queryDeadline() {
+		return deadlineAfter(this.queryTimeBudget, NO_DEADLINE);
+	}
+	
+	// Output is the counters of the chains decomposed so far, shared with the copies made for other threads
+	public DecompositionStats getStats() {
+		return this.stats;
+	}
+	
+	// Output is the cache of the synsets reached from each term, shared with the copies made for other threads
+	public ExpansionCache getExpansions() {
+		return this.expansions;
+	}
+	
+	// Chooses the original int weights, which turn negative and slip under the knowledge limit when a product does not fit in an int
+	public void setLegacyWeights(boolean legacyWeights) {
+		this.legacyWeights = legacyWeights;
+	}
+	
+	// Output is the number of weight products so far that did not fit in an int, the only case where the two weight options differ
+	public long getOverflows() {
+		return this.overflows;
 	}
 	
 	// resets a decomposer object
 	public void resetDecomposer() {
 		this.chain = new ArrayList<String>();
-		this.chainWeight = new ArrayList<Integer>();
-		this.chainSynsetID = new ArrayList<ISynsetID>();
-		this.weightSynsetID = new ArrayList<Integer>();
+		this.chainCount = new HashMap<String, Integer>();
+		this.chainWeight = new LongList();
+		this.chainSynsetID = new IntList();
+		this.visitedSynsetID = new IntHashSet();
+		this.weightSynsetID = new LongList();
 	}
 	
 	// starts the decomposer object
-	public String beginDecomposing(String inputPath) throws IOException {
+	public String beginDecomposing(String inputPath) throws IOException, InterruptedException {
 		String output = new String();
 		if (!inputPath.isEmpty()) {
-			String url, type, input;
-			List<String> inputList;
-			
-			if (inputPath.contains(".txt")) { // Split the input into lines depending on whether the input is a string or txt file
-				inputList = readTxt(inputPath);
+			final StringBuilder result = new StringBuilder();
+			BinaryRecords.RecordWriter out = new BinaryRecords.RecordWriter() {
+				public void write(FeatureRecord record) {
+					result.append("\n").append(record.toLine()); // construct the result for each list
+				}
+				
+				public void close() {
+				}
+			};
+			if (inputPath.contains(".txt") || BinaryRecords.isBinary(inputPath)) { // Read a file one record at a time, a string is already in memory
+				decomposeFile(inputPath, out);
 			} else {
-				inputList = Arrays.asList(inputPath.split("\n"));
-			}
-			
-			Iterator<String> inputListIterator = inputList.iterator();
-			while (inputListIterator.hasNext()) { // repeat as long as there are more lists
-				resetDecomposer();
-				input = inputListIterator.next();
-				this.chain = new ArrayList<String>(Arrays.asList(input.split(SPLIT_SYMBOL)));
-				url = this.chain.get(0); // This is the url where the current list of keywords came from
-				this.chain.remove(0);
-				type = this.chain.get(0); // This is the type of words in the current list, either nouns or verbs
-				this.chain.remove(0);
-				if (type.equals("VERB")) { // If this is a list of verbs, decompose the words as verbs
-					decomposeChain(POS.VERB);
+				List<FeatureRecord> records = new ArrayList<FeatureRecord>();
+				for (String input : inputPath.split("\n")) { // repeat as long as there are more lists
+					records.add(FeatureRecord.parse(input));
 				}
-				if (type.equals("NOUN")) { // If this is a list of nouns, decompose the words as nouns
-					decomposeChain(POS.NOUN);
+				for (FeatureRecord record : decomposeAll(records)) {
+					out.write(record);
 				}
-				output = output + "\n" + url + SPLIT_SYMBOL + type + SPLIT_SYMBOL + writeString(); // construct the result for the current list
 			}
-			output = output.substring(1); // removes the excess newline character from the beginning
+			output = result.substring(1); // removes the excess newline character from the beginning
 		}
 		return output;
 	}
 	
-	public static void main(String[] args) throws IOException {
-		if (args.length != 2) { // See if the number of command line input is correct
-			System.out.println("java Decomposer <keywords textfile path> <output textfile path>");
+	// Decomposes a keywords file and writes the features one record at a time, only a bounded number of records are pending at once
+	// Input is the keywords file path in either format and the output path, see BinaryRecords.create for the output format
+	public void decomposeFile(String inputPath, String outputPath) throws IOException, InterruptedException {
+		BinaryRecords.RecordWriter out = BinaryRecords.create(outputPath);
+		try {
+			decomposeFile(inputPath, out);
+		} finally {
+			out.close();
+		}
+	}
+	
+	private void decomposeFile(String inputPath, BinaryRecords.RecordWriter out) throws IOException, InterruptedException {
+		long deadline = queryDeadline(); // The records are the chains of one query
+		BinaryRecords.RecordReader in = BinaryRecords.open(inputPath);
+		try {
+			Deque<Future<FeatureRecord>> pending = new ArrayDeque<Future<FeatureRecord>>();
+			FeatureRecord record;
+			while ((record = in.read()) != null) {
+				pending.add(submit(record, deadline));
+				if (pending.size() >= PENDING_RECORDS) {
+					out.write(get(pending.poll()));
+				}
+			}
+			while (!pending.isEmpty()) {
+				out.write(get(pending.poll()));
+			}
+		} finally {
+			in.close();
+		}
+	}
+	
+	// Decomposes many lists of keywords
+	// Input is the records holding the URL, the type and the keywords of each list
+	// Output is the result of decompose for each record in the same order
+	public List<FeatureRecord> decomposeAll(List<FeatureRecord> records) throws InterruptedException {
+		long deadline = queryDeadline(); // The records are the chains of one query
+		List<Future<FeatureRecord>> pending = new ArrayList<Future<FeatureRecord>>();
+		for (FeatureRecord record : records) {
+			pending.add(submit(record, deadline));
+		}
+		List<FeatureRecord> results = new ArrayList<FeatureRecord>();
+		for (Future<FeatureRecord> result : pending) {
+			results.add(get(result));
+		}
+		return results;
+	}
+	
+	// Starts decomposing a single list of keywords, this decomposer does the work right away
+	// Output is the pending result, which is already done
+	public Future<FeatureRecord> submit(FeatureRecord record) {
+		return submit(record, NO_DEADLINE);
+	}
+	
+	// Starts decomposing a single list of keywords that has to be done by a deadline, see decompose
+	public Future<FeatureRecord> submit(final FeatureRecord record, final long deadline) {
+		FutureTask<FeatureRecord> task = new FutureTask<FeatureRecord>(new Callable<FeatureRecord>() {
+			public FeatureRecord call() {
+				return decompose(record, deadline);
+			}
+		});
+		task.run();
+		return task;
+	}
+	
+	// Waits for a pending result, a failed decomposition is thrown again on the waiting thread
+	public static FeatureRecord get(Future<FeatureRecord> result) throws InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause()); // decompose throws no checked exceptions
+		}
+	}
+	
+	// Output is the options that change the features made from a chain, two decomposers with the same options give the same text
+	public String options() {
+		return "bestFirst=" + this.bestFirst + " featureBudget=" + this.featureBudget + " legacyWeights=" + this.legacyWeights + " timeBudget=" + this.timeBudget + " queryTimeBudget=" + this.queryTimeBudget;
+	}
+	
+	// Output is a new decomposer on the same cache with the same options, for decomposing on another thread
+	protected Decomposer copy() {
+		Decomposer copy = new Decomposer(this.expansions);
+		copy.bestFirst = this.bestFirst;
+		copy.featureBudget = this.featureBudget;
+		copy.legacyWeights = this.legacyWeights;
+		copy.timeBudget = this.timeBudget;
+		copy.queryTimeBudget = this.queryTimeBudget;
+		copy.stats = this.stats;
+		return copy;
+	}
+	
+	// Decomposes a single list of keywords
+	// Input is the record holding the URL, the type and the keywords
+	// Output is a record of the same URL and type holding the expanded features
+	public FeatureRecord decompose(FeatureRecord record) {
+		return decompose(record, NO_DEADLINE);
+	}
+	
+	// Decomposes a single list of keywords within the time budget of the chain and a deadline
+	// Input is the record and the System.nanoTime() at which to stop, such as the deadline of its query
+	// Output is a record of the same URL and type holding the expanded features and their weights, flagged as truncated if a budget cut it short
+	public FeatureRecord decompose(FeatureRecord record, long deadline) {
+		resetDecomposer();
+		for (String term : record.terms) {
+			addToChain(term);
+		}
+		this.keywordCount = this.chain.size();
+		this.deadline = deadlineAfter(this.timeBudget, deadline);
+		this.truncated = false;
+		this.stats.chain();
+		if (record.type.equals(FeatureRecord.VERB)) { // If this is a list of verbs, decompose the words as verbs
+			decompose(POS.VERB);
+		}
+		if (record.type.equals(FeatureRecord.NOUN)) { // If this is a list of nouns, decompose the words as nouns
+			decompose(POS.NOUN);
+		}
+		long[] weights = this.chainWeight.size() == this.chain.size() ? this.chainWeight.toArray() : null; // Only a decomposed chain has weights
+		return new FeatureRecord(record.url, record.type, new ArrayList<String>(this.chain), this.truncated, weights);
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2 || args.length > 5) { // See if the number of command line input is correct
+			System.out.println("java Decomposer <keywords path, txt or binary> <output path, binary if it ends with " + BinaryRecords.EXTENSION + "> [expansion cache path] [feature budget for best-first decomposition, 0 for level by level] [number of threads]");
 			return;
 		}
-		IRAMDictionary dictionary = new RAMDictionary(DICTIONARY_PATH, ILoadPolicy.NO_LOAD);
-		dictionary.open();
-		
-		// construct a decomposer
-		Decomposer d = new Decomposer(dictionary);
-		String output = d.beginDecomposing(args[0]); // Decomposition is done here
-		Decomposer.writeTxt(args[1], output); // Saves the result into a text file
+		// construct a decomposer, on the compiled snapshot of the dictionary if there is one
+		SynsetGraph graph;
+		IRAMDictionary dictionary = null;
+		if (SNAPSHOT_PATH.isFile()) {
+			graph = CompiledSynsetGraph.open(SNAPSHOT_PATH);
+		} else {
+			dictionary = new RAMDictionary(DICTIONARY_PATH, ILoadPolicy.NO_LOAD);
+			dictionary.open();
+			graph = new JwiSynsetGraph(dictionary);
+		}
+		ExpansionCache expansions = new ExpansionCache(graph, ExpansionCache.DEFAULT_MAX_ENTRIES);
+		if (args.length >= 3 && new File(args[2]).isFile()) { // Start from the expansions saved by an earlier run
+			expansions.load(new File(args[2]));
+		}
+		ForkJoinPool pool = null;
+		Decomposer d;
+		if (args.length == 5) { // Every list is decomposed as a task of its own, all tasks share the cache and the graph
+			pool = new ForkJoinPool(Integer.parseInt(args[4]));
+			d = new ParallelDecomposer(expansions, pool);
+		} else {
+			d = new Decomposer(expansions);
+		}
+		if (args.length >= 4 && Integer.parseInt(args[3]) > 0) {
+			d.setBestFirst(true);
+			d.setFeatureBudget(Integer.parseInt(args[3]));
+		}
+		d.decomposeFile(args[0], args[1]); // Decomposition is done here and the result is saved one record at a time
+		System.out.println(expansions);
+		System.out.println(d.getStats());
+		if (pool != null) {
+			pool.shutdown();
+		}
+		if (args.length >= 3) {
+			expansions.save(new File(args[2]));
+		}
 		
-		dictionary.close();
+		if (dictionary != null) {
+			dictionary.close();
+		}
 		return;
 	}
 	
+	private void decompose(POS pos) {
+		if (this.bestFirst) {
+			decomposeBestFirst(pos);
+		} else {
+			decomposeChain(pos);
+		}
+	}
+	
 	// Decompose the current list/chain of words either as nouns or verbs
 	// Input is a word type specifying the type for the current list of word
 	private void decomposeChain(POS pos) {
 		
 		// initialize weights for the targeted chain
-		this.chainWeight = new ArrayList<Integer>();
-		this.chainWeight.addAll(Collections.nCopies(this.chain.size(), 1));
+		this.chainWeight = new LongList(this.chain.size());
+		this.chainWeight.addCopies(this.chain.size(), 1);
 		
 		// this stores the full history of the visited nodes during decomposition of the current chain to ensure nodes are not revisited
-		this.chainSynsetID = new ArrayList<ISynsetID>();
-		this.weightSynsetID = new ArrayList<Integer>();
+		this.chainSynsetID = new IntList();
+		this.visitedSynsetID = new IntHashSet();
+		this.weightSynsetID = new LongList();
 		
 		// these are  reusable markers for marking the progress of decomposition for the current chain
 		this.chainMarker = 0;
 		this.synsetIDMarker = 0;
 		
 		boolean done;
-		int current;
-		int history = 0;
+		long current;
+		long history = 0;
 		// keep decomposing the chain while chainMarker have not reach the last feature AND the minimum semantic distance so far does not exceed the defined knowledge limit
 		while ((this.chainMarker < this.chain.size()) && (history < KNOWLEDGE_LIMIT)) {
 			done = true;
 			while (this.chainMarker < this.chain.size()) {
+				if (expired()) {
+					break;
+				}
 				decomposeTerm(this.chain.get(this.chainMarker), this.chainWeight.get(this.chainMarker), pos);
 				this.chainMarker++;
 			}
@@ -138,8 +386,17 @@ public class Decomposer {
 			// remove features that are beyond the defined knowledge limit
 			filterFeature();
 			
+			// stop with the features found so far once a budget runs out
+			if (this.truncated) {
+				break;
+			}
+			if (this.chain.size() > Math.max(this.featureBudget, this.keywordCount)) {
+				cutToSize(Math.max(this.featureBudget, this.keywordCount));
+				break;
+			}
+			
 			if ((this.chain.size() - this.chainMarker) > 2) {
-				current = Collections.min(this.chainWeight.subList(this.chainMarker, (this.chainWeight.size() - 1)));
+				current = this.chainWeight.min(this.chainMarker, (this.chainWeight.size() - 1));
 				if (current != history) {
 					done = false;
 					history = current;
@@ -153,82 +410,131 @@ public class Decomposer {
 		}
 	}
 	
-	// Decompose the current word into a list of related features
-	// Input is the current word, the weight of its parents and its word type
-	private void decomposeTerm(String term, Integer weight, POS pos) {
+	// A word waiting to be added to the chain in best-first decomposition, the lightest word comes first and words of equal weight come in the order they were found
+	private static class Candidate implements Comparable<Candidate> {
+		final String word;
+		final long weight;
+		final long order;
+		final boolean keyword; // One of the original keywords, already in the chain
 		
-		// retrieve term from dictionary
-		IIndexWord idxWord = this.dictionary.getIndexWord(term, pos);
+		Candidate(String word, long weight, long order, boolean keyword) {
+			this.word = word;
+			this.weight = weight;
+			this.order = order;
+			this.keyword = keyword;
+		}
 		
-		// proceed if the term is in dictionary
-		if (idxWord != null) {
-			
-			// get the synset of the current term
-			IWordID wordID = idxWord.getWordIDs().get(0);
-			IWord word = this.dictionary.getWord(wordID);
-			ISynset synset = word.getSynset();
-			
-			// append SynsetID of related words for the current term
-			List<ISynsetID> tempSynsetID = new ArrayList<ISynsetID>();
-			if (!this.chainSynsetID.contains(synset.getID())) {
-				tempSynsetID.add(synset.getID());
+		public int compareTo(Candidate other) {
+			if (this.weight != other.weight) {
+				return this.weight < other.weight ? -1 : 1;
 			}
-			for (ISynsetID sid : synset.getRelatedSynsets(Pointer.HYPERNYM)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
-				}
+			return this.order < other.order ? -1 : (this.order == other.order ? 0 : 1);
+		}
+	}
+	
+	// Decompose the current chain of words in order of weight, like a shortest path search where the weight of a word is the product of the branching on the way to it
+	// Words heavier than the knowledge limit are never queued, so no filtering pass is needed, and the search stops once nothing under the limit is left or the chain reaches the feature budget
+	// A word reached again through a lighter path before it was added takes the lighter weight, so the chain holds the lightest related words sorted by weight
+	// Input is a word type specifying the type for the current list of word
+	private void decomposeBestFirst(POS pos) {
+		this.chainWeight = new LongList(this.chain.size());
+		this.chainWeight.addCopies(this.chain.size(), 1);
+		this.visitedSynsetID = new IntHashSet();
+		
+		PriorityQueue<Candidate> frontier = new PriorityQueue<Candidate>();
+		Map<String, Long> tentative = new HashMap<String, Long>(); // Lightest weight found so far for each queued word
+		long order = 0;
+		for (String term : this.chain) {
+			frontier.add(new Candidate(term, 1, order++, true));
+		}
+		
+		Candidate next;
+		while ((next = frontier.poll()) != null) {
+			if (next.weight > KNOWLEDGE_LIMIT) { // Every word left is heavier still
+				break;
 			}
-			for (ISynsetID sid :synset.getRelatedSynsets(Pointer.HYPONYM)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
-				}
+			if (expired()) {
+				break;
 			}
-			for (ISynsetID sid : synset.getRelatedSynsets(Pointer.HOLONYM_MEMBER)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
+			if (!next.keyword) {
+				if (this.chainCount.containsKey(next.word) || tentative.get(next.word) != next.weight) { // Added already or found again through a lighter path
+					continue;
 				}
-			}
-			for (ISynsetID sid : synset.getRelatedSynsets(Pointer.HOLONYM_PART)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
+				if (this.chain.size() >= this.featureBudget) {
+					this.truncated = true;
+					this.stats.cutToSize();
+					break;
 				}
+				tentative.remove(next.word);
+				addToChain(next.word);
+				this.chainWeight.add(next.weight);
 			}
-			for (ISynsetID sid : synset.getRelatedSynsets(Pointer.HOLONYM_SUBSTANCE)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
-				}
+			
+			// queue the words of the synsets related to this word that have not been visited yet
+			ExpansionCache.Expansion expansion = this.expansions.expand(next.word, pos);
+			if (expansion.synset < 0) {
+				continue;
 			}
-			for (ISynsetID sid : synset.getRelatedSynsets(Pointer.MERONYM_MEMBER)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
+			IntList synsets = new IntList(expansion.synsets.length);
+			for (int sid : expansion.synsets) {
+				if (this.visitedSynsetID.add(sid)) {
+					synsets.add(sid);
 				}
 			}
-			for (ISynsetID sid : synset.getRelatedSynsets(Pointer.MERONYM_PART)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
+			long synsetWeight = multiply(next.weight, synsets.size()); // Same weights as decomposeTerm and convertSynsetsToWords
+			for (int i = 0; i < synsets.size(); i++) {
+				String[] words = this.expansions.words(synsets.get(i));
+				long weight = multiply(synsetWeight, words.length);
+				if (weight > KNOWLEDGE_LIMIT) {
+					continue;
+				}
+				for (String word : words) {
+					Long best = tentative.get(word);
+					if (!this.chainCount.containsKey(word) && (best == null || weight < best)) {
+						tentative.put(word, weight);
+						frontier.add(new Candidate(word, weight, order++, false));
+					}
 				}
 			}
-			for (ISynsetID sid : synset.getRelatedSynsets(Pointer.MERONYM_SUBSTANCE)) {
-				if (!this.chainSynsetID.contains(sid) && !tempSynsetID.contains(sid)) {
-					tempSynsetID.add(sid);
+		}
+	}
+	
+	// Decompose the current word into a list of related features
+	// Input is the current word, the weight of its parents and its word type
+	private void decomposeTerm(String term, long weight, POS pos) {
+		
+		// get the synset of the current term and the synsets related to it
+		ExpansionCache.Expansion expansion = this.expansions.expand(term, pos);
+		
+		// proceed if the term is in dictionary
+		if (expansion.synset >= 0) {
+			
+			// append SynsetID of related words for the current term, a synset is only added the first time it is visited
+			int added = this.chainSynsetID.size();
+			for (int sid : expansion.synsets) {
+				if (this.visitedSynsetID.add(sid)) {
+					this.chainSynsetID.add(sid); // Collect all the related synset IDs
 				}
 			}
+			added = this.chainSynsetID.size() - added;
 			// Calculate the weight of each feature based on the weight of the current word's parents 
-			this.weightSynsetID.addAll(Collections.nCopies(tempSynsetID.size(), weight * tempSynsetID.size()));
-			this.chainSynsetID.addAll(tempSynsetID); // Collect all the related synset IDs
+			this.weightSynsetID.addCopies(added, multiply(weight, added));
 		}
 	}
 	
 	// Forward lookup of synset IDs to find the corresponding words
 	private void convertSynsetsToWords() {
-		Integer newWeight;
-		List<IWord> temp = new ArrayList<IWord>();
+		long newWeight;
+		String[] temp;
 		while (this.synsetIDMarker < this.chainSynsetID.size()) {
-			temp = this.dictionary.getSynset(this.chainSynsetID.get(this.synsetIDMarker)).getWords();
-			newWeight = this.weightSynsetID.get(this.synsetIDMarker) * temp.size();
-			for (int t = 0; t < temp.size(); t++) {
-				if(!this.chain.contains(temp.get(t).getLemma())) {
-					this.chain.add(temp.get(t).getLemma());
+			if (expired()) {
+				break;
+			}
+			temp = this.expansions.words(this.chainSynsetID.get(this.synsetIDMarker));
+			newWeight = multiply(this.weightSynsetID.get(this.synsetIDMarker), temp.length);
+			for (int t = 0; t < temp.length; t++) {
+				if (!this.chainCount.containsKey(temp[t])) {
+					addToChain(temp[t]);
 					this.chainWeight.add(newWeight);
 				}
 			}
@@ -237,53 +543,93 @@ public class Decomposer {
 	}
 	
 	// Filter out features that are beyond the specified knowledge limit
+	// The kept features are moved down in one pass instead of removing the others one at a time
 	private void filterFeature() {
-		int t = this.chainWeight.size() - 1;
-		while (t >= 0) {
+		int kept = 0;
+		int keptBeforeMarker = 0;
+		for (int t = 0; t < this.chainWeight.size(); t++) {
 			if (this.chainWeight.get(t) > KNOWLEDGE_LIMIT) {
-				this.chain.remove(t);
-				this.chainWeight.remove(t);
+				removeFromChainCount(this.chain.get(t));
+			} else {
+				this.chain.set(kept, this.chain.get(t));
+				this.chainWeight.set(kept, this.chainWeight.get(t));
+				kept++;
 				if (t < this.chainMarker) {
-					this.chainMarker--;
+					keptBeforeMarker++;
 				}
 			}
-			t--;
 		}
+		this.chain.subList(kept, this.chain.size()).clear();
+		this.chainWeight.truncate(kept);
+		this.chainMarker = keptBeforeMarker;
 	}
 	
-	// Opens and reads text from a txt file
-	// Input is the txt file path
-	// Output is a list structure containing each line in the text file
-	private static List<String> readTxt(String path) throws IOException {
-		List<String> input = new ArrayList<String>();
-		String line;
-		
-		InputStream is = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
-		
-		try {
-			is = new FileInputStream(path);
-			isr = new InputStreamReader(is);
-			br = new BufferedReader(isr);
-			
-			while ((line = br.readLine()) != null) {
-				input.add(line);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			if (is != null) {
-				is.close();
-			}
-			if (isr != null) {
-				isr.close();
-			}
-			if (br != null) {
-				br.close();
-			}
+	// Drops the features after the given size, the chain is flagged as truncated
+	private void cutToSize(int size) {
+		for (int t = size; t < this.chain.size(); t++) {
+			removeFromChainCount(this.chain.get(t));
+		}
+		this.chain.subList(size, this.chain.size()).clear();
+		this.chainWeight.truncate(size);
+		this.chainMarker = Math.min(this.chainMarker, size);
+		this.truncated = true;
+		this.stats.cutToSize();
+	}
+	
+	// Output is true once the current chain has to stop, the first time the deadline is seen to have passed the chain is flagged as truncated
+	private boolean expired() {
+		if (this.truncated) {
+			return true;
+		}
+		if (this.deadline == NO_DEADLINE || System.nanoTime() - this.deadline < 0) {
+			return false;
+		}
+		this.truncated = true;
+		this.stats.timedOut();
+		return true;
+	}
+	
+	// Output is the deadline a time budget from now gives, or the other deadline if that one comes first
+	private static long deadlineAfter(long budget, long deadline) {
+		if (budget <= 0) {
+			return deadline;
+		}
+		long own = System.nanoTime() + budget;
+		if (deadline == NO_DEADLINE || own - deadline < 0) {
+			return own;
+		}
+		return deadline;
+	}
+	
+	// Multiplies a weight by a number of synsets or words
+	// Output is the product, or Long.MAX_VALUE if it does not fit in a long, or the product wrapped around as an int with the legacy option
+	private long multiply(long weight, int count) {
+		long product = weight * count;
+		if (product != (int) product || weight != (int) weight) {
+			this.overflows++;
+		}
+		if (this.legacyWeights) {
+			return (int) weight * count;
+		}
+		if (count != 0 && (product / count != weight || product < 0)) {
+			return Long.MAX_VALUE;
+		}
+		return product;
+	}
+	
+	private void addToChain(String word) {
+		this.chain.add(word);
+		Integer count = this.chainCount.get(word);
+		this.chainCount.put(word, count == null ? 1 : count + 1);
+	}
+	
+	private void removeFromChainCount(String word) {
+		int count = this.chainCount.get(word);
+		if (count == 1) {
+			this.chainCount.remove(word);
+		} else {
+			this.chainCount.put(word, count - 1);
 		}
-		return input;
 	}
 	
 	// Writes a string to a txt file
@@ -296,7 +642,7 @@ public class Decomposer {
 		BufferedWriter bw = null;
 		try {
 			os = new FileOutputStream(path);
-			osw = new OutputStreamWriter(os);
+			osw = new OutputStreamWriter(os, "UTF-8");
 			bw = new BufferedWriter(osw);
 			
 			bw.write(output);
@@ -314,4 +660,4 @@ public class Decomposer {
 		String temp = new String(this.chain.toString().replace(", ", " "));
 		return temp.substring(1, temp.length() - 1).replace(" ", SPLIT_SYMBOL);
 	}
-}
+}
\ No newline at end of file
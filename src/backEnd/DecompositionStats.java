@@ -0,0 +1,45 @@
+package backEnd;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// The DecompositionStats class counts the chains a decomposer has worked on and how many of them were cut short
+// A decomposer and the copies it makes for other threads add to the same counters
+public class DecompositionStats {
+	private AtomicLong chains = new AtomicLong();
+	private AtomicLong timedOut = new AtomicLong(); // Stopped by the time budget of the chain or of the query
+	private AtomicLong cutToSize = new AtomicLong(); // Stopped by the feature budget
+	
+	void chain() {
+		this.chains.incrementAndGet();
+	}
+	
+	void timedOut() {
+		this.timedOut.incrementAndGet();
+	}
+	
+	void cutToSize() {
+		this.cutToSize.incrementAndGet();
+	}
+	
+	public long getChains() {
+		return this.chains.get();
+	}
+	
+	public long getTimedOut() {
+		return this.timedOut.get();
+	}
+	
+	public long getCutToSize() {
+		return this.cutToSize.get();
+	}
+	
+	// Output is the share of the chains that were cut short for either reason
+	public double truncationRate() {
+		long chains = getChains();
+		return chains == 0 ? 0 : (double) (getTimedOut() + getCutToSize()) / chains;
+	}
+	
+	public String toString() {
+		return "DecompositionStats chains=" + getChains() + " timedOut=" + getTimedOut() + " cutToSize=" + getCutToSize() + " truncationRate=" + String.format("%.3f", truncationRate());
+	}
+}
\ No newline at end of file
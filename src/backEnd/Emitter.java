@@ -0,0 +1,6 @@
+package backEnd;
+
+// The Emitter interface receives the key-value pairs written by a mapper, a combiner or a reducer, like the context of a Hadoop task
+public interface Emitter<V> {
+	void emit(String key, V value) throws Exception;
+}
\ No newline at end of file
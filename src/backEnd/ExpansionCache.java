@@ -0,0 +1,338 @@
+package backEnd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.mit.jwi.item.POS;
+
+// The ExpansionCache class remembers which synsets each term leads to and which words each synset holds
+// The same head words show up in nearly every webpage, so their synset walk is only done once per process, or once ever when the cache is saved
+// Threads missing the same term at the same time wait for the one walk in progress instead of each walking it
+// The weight a term passes on depends on which synsets the chain has already visited, so the weights are still worked out per chain from the cached synsets
+// The entries are spread over segments that each keep their least recently used entry first, so threads rarely wait for each other
+public class ExpansionCache {
+	public static final int DEFAULT_MAX_ENTRIES = 50000;
+	
+	private static final int SEGMENTS = 16; // segment() relies on this being 16
+	private static final int MAGIC = 0x45585043; // "EXPC"
+	private static final int VERSION = 1;
+	
+	// The synsets reached from a term
+	public static class Expansion {
+		public final int synset; // First sense of the term, -1 if the term is not in the dictionary
+		public final int[] synsets; // The first sense and then its related synsets in the order of SynsetGraph.RELATIONS, each synset once
+		
+		Expansion(int synset, int[] synsets) {
+			this.synset = synset;
+			this.synsets = synsets;
+		}
+	}
+	
+	private SynsetGraph graph;
+	private int maxEntries;
+	private List<Segment<String, Expansion>> expansions; // By word type tag and term
+	private List<Segment<Integer, String[]>> words; // By synset
+	private ConcurrentMap<String, Future<Expansion>> walking = new ConcurrentHashMap<String, Future<Expansion>>(); // The walks in progress, by the same key as expansions
+	
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+	private AtomicLong evictions = new AtomicLong();
+	
+	// Input is the graph to walk on a miss and the number of terms and of synsets to keep, 0 keeps nothing
+	public ExpansionCache(SynsetGraph graph, int maxEntries) {
+		this.graph = graph;
+		this.maxEntries = maxEntries;
+		this.expansions = new ArrayList<Segment<String, Expansion>>();
+		this.words = new ArrayList<Segment<Integer, String[]>>();
+		for (int s = 0; s < SEGMENTS; s++) {
+			this.expansions.add(new Segment<String, Expansion>((maxEntries + SEGMENTS - 1) / SEGMENTS));
+			this.words.add(new Segment<Integer, String[]>((maxEntries + SEGMENTS - 1) / SEGMENTS));
+		}
+	}
+	
+	// A part of the cache, the least recently used entry is removed when it is full
+	private class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L; // A LinkedHashMap is serializable, the cache itself is saved with save instead
+		
+		private int capacity;
+		
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+		
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if (size() > this.capacity) {
+				ExpansionCache.this.evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+	
+	// Finds the synsets a term leads to
+	// Input is the term and its word type
+	// Output is the expansion, walked on the graph if the term was not cached
+	public Expansion expand(final String term, final POS pos) {
+		final String key = pos.getTag() + term;
+		final Segment<String, Expansion> segment = this.expansions.get(segment(key.hashCode()));
+		Expansion expansion;
+		synchronized (segment) {
+			expansion = segment.get(key);
+		}
+		if (expansion != null) {
+			this.hits.incrementAndGet();
+			return expansion;
+		}
+		FutureTask<Expansion> task = new FutureTask<Expansion>(new Callable<Expansion>() {
+			public Expansion call() {
+				Expansion expansion;
+				synchronized (segment) { // Cached by a walk that ended after the first lookup
+					expansion = segment.get(key);
+				}
+				if (expansion != null) {
+					ExpansionCache.this.hits.incrementAndGet();
+					return expansion;
+				}
+				ExpansionCache.this.misses.incrementAndGet();
+				expansion = walk(term, pos);
+				if (ExpansionCache.this.maxEntries > 0) {
+					synchronized (segment) {
+						segment.put(key, expansion);
+					}
+				}
+				return expansion;
+			}
+		});
+		Future<Expansion> walk = this.walking.putIfAbsent(key, task);
+		if (walk == null) { // This thread is the first to miss the term
+			walk = task;
+			try {
+				task.run();
+			} finally {
+				this.walking.remove(key, task);
+			}
+		} else {
+			this.hits.incrementAndGet();
+		}
+		try {
+			return walk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e); // expand has no checked exceptions, the waiting thread is being stopped
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause()); // walk throws no checked exceptions
+		}
+	}
+	
+	// Output is the lemmas of the words in a synset, in dictionary order
+	public String[] words(int synset) {
+		Segment<Integer, String[]> segment = this.words.get(segment(synset));
+		String[] lemmas;
+		synchronized (segment) {
+			lemmas = segment.get(synset);
+		}
+		if (lemmas == null) {
+			if (this.graph.isThreadSafe()) {
+				lemmas = readWords(synset);
+			} else {
+				synchronized (this.graph) { // A graph read straight from the dictionary cannot be used by two threads at once
+					lemmas = readWords(synset);
+				}
+			}
+			if (this.maxEntries > 0) {
+				synchronized (segment) {
+					segment.put(synset, lemmas);
+				}
+			}
+		}
+		return lemmas;
+	}
+	
+	// Picks a segment from the high bits of the scrambled hash, synset IDs that only differ in their high bits still spread over all segments
+	private static int segment(int hash) {
+		return (hash * 0x9e3779b9) >>> 28;
+	}
+	
+	private Expansion walk(String term, POS pos) {
+		if (this.graph.isThreadSafe()) {
+			return readExpansion(term, pos);
+		}
+		synchronized (this.graph) {
+			return readExpansion(term, pos);
+		}
+	}
+	
+	private Expansion readExpansion(String term, POS pos) {
+		int synset = this.graph.lookup(term, pos);
+		if (synset < 0) {
+			return new Expansion(-1, new int[0]);
+		}
+		IntList synsets = new IntList();
+		IntHashSet seen = new IntHashSet();
+		seen.add(synset);
+		synsets.add(synset);
+		for (int r = 0; r < SynsetGraph.RELATIONS.length; r++) {
+			int count = this.graph.relatedCount(synset, r);
+			for (int i = 0; i < count; i++) {
+				int sid = this.graph.related(synset, r, i);
+				if (seen.add(sid)) {
+					synsets.add(sid);
+				}
+			}
+		}
+		return new Expansion(synset, synsets.toArray());
+	}
+	
+	private String[] readWords(int synset) {
+		String[] lemmas = new String[this.graph.wordCount(synset)];
+		for (int t = 0; t < lemmas.length; t++) {
+			lemmas[t] = this.graph.word(synset, t);
+		}
+		return lemmas;
+	}
+	
+	public long getHits() {
+		return this.hits.get();
+	}
+	
+	public long getMisses() {
+		return this.misses.get();
+	}
+	
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+	
+	public double hitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	public int size() {
+		int size = 0;
+		for (Segment<String, Expansion> segment : this.expansions) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	public String toString() {
+		return "ExpansionCache hits=" + getHits() + " misses=" + getMisses() + " hitRate=" + String.format("%.3f", hitRate()) + " evictions=" + getEvictions() + " terms=" + size();
+	}
+	
+	// Saves the cached expansions and words, the synset IDs are only valid for the same graph so the file records which graph it was made with
+	public void save(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(String.valueOf(this.graph));
+			for (Segment<String, Expansion> segment : this.expansions) {
+				synchronized (segment) {
+					out.writeInt(segment.size());
+					for (Map.Entry<String, Expansion> entry : segment.entrySet()) {
+						out.writeUTF(entry.getKey());
+						out.writeInt(entry.getValue().synset);
+						out.writeInt(entry.getValue().synsets.length);
+						for (int sid : entry.getValue().synsets) {
+							out.writeInt(sid);
+						}
+					}
+				}
+			}
+			for (Segment<Integer, String[]> segment : this.words) {
+				synchronized (segment) {
+					out.writeInt(segment.size());
+					for (Map.Entry<Integer, String[]> entry : segment.entrySet()) {
+						out.writeInt(entry.getKey());
+						out.writeInt(entry.getValue().length);
+						for (String lemma : entry.getValue()) {
+							out.writeUTF(lemma);
+						}
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) {
+				throw new IOException("Cannot write expansion cache " + file);
+			}
+		}
+	}
+	
+	// Loads expansions saved by save, a file made with another graph is ignored
+	// Output is true if the file was loaded
+	public boolean load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(String.valueOf(this.graph))) {
+				return false;
+			}
+			for (Segment<String, Expansion> segment : this.expansions) {
+				int count = in.readInt();
+				for (int e = 0; e < count; e++) {
+					String key = in.readUTF();
+					int synset = in.readInt();
+					int[] synsets = new int[in.readInt()];
+					for (int i = 0; i < synsets.length; i++) {
+						synsets[i] = in.readInt();
+					}
+					if (this.maxEntries > 0) {
+						synchronized (segment) {
+							segment.put(key, new Expansion(synset, synsets));
+						}
+					}
+				}
+			}
+			for (Segment<Integer, String[]> segment : this.words) {
+				int count = in.readInt();
+				for (int e = 0; e < count; e++) {
+					int synset = in.readInt();
+					String[] lemmas = new String[in.readInt()];
+					for (int t = 0; t < lemmas.length; t++) {
+						lemmas[t] = in.readUTF();
+					}
+					if (this.maxEntries > 0) {
+						synchronized (segment) {
+							segment.put(synset, lemmas);
+						}
+					}
+				}
+			}
+			return true;
+		} finally {
+			in.close();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package backEnd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// The FeatureRecord class holds one list of nouns or verbs from a webpage URL (or the query), either as keywords or as expanded features
+public class FeatureRecord {
+	public static final String VERB = "VERB";
+	public static final String NOUN = "NOUN";
+	
+	private static final String SPLIT_SYMBOL = "`"; // Default split token
+	
+	public final String url;
+	public final String type; // Either VERB or NOUN
+	public final List<String> terms;
+	public final boolean truncated; // The expansion was cut short by a time or feature budget, the terms are the features found until then
+	public final long[] weights; // The decomposition weight of each term, null if not known such as for keywords, not to be changed
+	
+	public FeatureRecord(String url, String type, List<String> terms) {
+		this(url, type, terms, false);
+	}
+	
+	public FeatureRecord(String url, String type, List<String> terms, boolean truncated) {
+		this(url, type, terms, truncated, null);
+	}
+	
+	public FeatureRecord(String url, String type, List<String> terms, boolean truncated, long[] weights) {
+		if (weights != null && weights.length != terms.size()) {
+			throw new IllegalArgumentException(weights.length + " weights for " + terms.size() + " terms");
+		}
+		this.url = url;
+		this.type = type;
+		this.terms = Collections.unmodifiableList(terms);
+		this.truncated = truncated;
+		this.weights = weights;
+	}
+	
+	// Converts a line in the keywords/features txt format back into a record
+	// Input is a line of the form URL`TYPE`term`term...
+	// Output is the corresponding record
+	public static FeatureRecord parse(String line) {
+		List<String> fields = new ArrayList<String>(Arrays.asList(line.split(SPLIT_SYMBOL)));
+		String url = fields.remove(0); // This is the url where the current list of terms came from
+		String type = fields.remove(0); // This is the type of words in the current list, either nouns or verbs
+		return new FeatureRecord(url, type, fields);
+	}
+	
+	// Formats the record as a line of the keywords/features txt file, the truncated flag and the weights are not part of the line
+	public String toLine() {
+		StringBuilder line = new StringBuilder(this.url).append(SPLIT_SYMBOL).append(this.type).append(SPLIT_SYMBOL);
+		for (int t = 0; t < this.terms.size(); t++) {
+			if (t > 0) {
+				line.append(SPLIT_SYMBOL);
+			}
+			line.append(this.terms.get(t));
+		}
+		return line.toString();
+	}
+	
+	public boolean isQuery() {
+		return this.url.contains("QUERY");
+	}
+}
\ No newline at end of file
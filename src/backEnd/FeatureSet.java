@@ -0,0 +1,108 @@
+package backEnd;
+
+import java.util.Arrays;
+import java.util.List;
+
+// The FeatureSet class holds a list of features as the sorted IDs of its distinct terms in a TermDictionary
+// Intersections and unions are counted by walking two sorted arrays side by side, no lists of strings are built
+// The number of terms in the original list is kept as well, since the noun score divides by it
+public class FeatureSet {
+	public static final FeatureSet EMPTY = new FeatureSet(new int[0], 0);
+	
+	private final int[] ids; // Sorted, each ID once
+	private final int size; // Number of terms in the list the set was made from, including repeated terms
+	
+	private FeatureSet(int[] ids, int size) {
+		this.ids = ids;
+		this.size = size;
+	}
+	
+	// Makes the set of a list of features
+	// Input is the list of terms and the dictionary giving out the IDs
+	// Output is the set
+	public static FeatureSet of(List<String> terms, TermDictionary dictionary) {
+		int[] ids = new int[terms.size()];
+		for (int t = 0; t < ids.length; t++) {
+			ids[t] = dictionary.id(terms.get(t));
+		}
+		Arrays.sort(ids);
+		int distinct = 0;
+		for (int t = 0; t < ids.length; t++) {
+			if (distinct == 0 || ids[t] != ids[distinct - 1]) {
+				ids[distinct++] = ids[t];
+			}
+		}
+		return new FeatureSet(Arrays.copyOf(ids, distinct), terms.size());
+	}
+	
+	// Output is the number of terms in the original list, including repeated terms
+	public int size() {
+		return this.size;
+	}
+	
+	// Output is the number of distinct terms
+	public int distinct() {
+		return this.ids.length;
+	}
+	
+	// Output is the ID at the given position in sorted order
+	public int get(int index) {
+		return this.ids[index];
+	}
+	
+	public boolean contains(int id) {
+		return Arrays.binarySearch(this.ids, id) >= 0;
+	}
+	
+	// Output is the number of distinct terms in both sets
+	public int intersectionSize(FeatureSet other) {
+		int[] a = this.ids;
+		int[] b = other.ids;
+		int i = 0;
+		int j = 0;
+		int count = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+	
+	// Output is the number of distinct terms in either set
+	public int unionSize(FeatureSet other) {
+		return this.ids.length + other.ids.length - intersectionSize(other);
+	}
+	
+	// Output is the set of the terms in either set, its size is the number of distinct terms like a list without repeated terms
+	public FeatureSet union(FeatureSet other) {
+		int[] a = this.ids;
+		int[] b = other.ids;
+		int[] ids = new int[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				ids[n++] = a[i++];
+			} else if (i == a.length || a[i] > b[j]) {
+				ids[n++] = b[j++];
+			} else {
+				ids[n++] = a[i++];
+				j++;
+			}
+		}
+		return new FeatureSet(Arrays.copyOf(ids, n), n);
+	}
+	
+	// Output is a copy of the sorted distinct IDs
+	public int[] ids() {
+		return this.ids.clone();
+	}
+}
\ No newline at end of file
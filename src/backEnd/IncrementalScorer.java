@@ -0,0 +1,251 @@
+package backEnd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.mit.jwi.IRAMDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
+
+// The IncrementalScorer class scores a query file again after its list of URLs changed, and only runs the modules on what is new
+// Every webpage is still fetched (the page cache makes that a revalidation for the ones that did not change), and the hash of its sentences decides which stages can be skipped:
+// the score is reused if the same version of the webpage was scored against the query before, the features are reused if the same version was decomposed before for any query with the same Decomposer options,
+// and the chains are decomposed again without tagging if the stored features were cut short by a time budget or made with other options
+public class IncrementalScorer {
+	private static final int FETCH_THREADS = 8; // The number of webpages downloaded at the same time
+	
+	// The artifacts of the webpages and of the queries are kept between runs
+	public static final File ARTIFACT_STORE_PATH = new File("artifactStore");
+	
+	private Parser parser;
+	private Decomposer decomposer;
+	private PageFetcher fetcher;
+	private ArtifactStore pages;
+	private ArtifactStore queries;
+	
+	// What was done with each line of the last query file, and how many lines each stage was skipped for
+	private Map<String, String> report = new LinkedHashMap<String, String>();
+	private int parsesSkipped;
+	private int decompositionsSkipped;
+	private int scoresSkipped;
+	private int scored;
+	
+	// Input is the parser and the decomposer for the new webpages, the fetcher and the stores of the webpage and query artifacts
+	public IncrementalScorer(Parser parser, Decomposer decomposer, PageFetcher fetcher, ArtifactStore pages, ArtifactStore queries) {
+		this.parser = parser;
+		this.decomposer = decomposer;
+		this.fetcher = fetcher;
+		this.pages = pages;
+		this.queries = queries;
+	}
+	
+	// Scores a query file, using and updating the stores
+	// Input is the lines of a query file in the format of the dummyText query files
+	// Output is the scores in the order of the URLs, webpages that could not be fetched score NaN
+	public List<ScoreRecord> score(List<String> lines) throws IOException, InterruptedException {
+		this.report.clear();
+		this.parsesSkipped = 0;
+		this.decompositionsSkipped = 0;
+		this.scoresSkipped = 0;
+		this.scored = 0;
+		long deadline = this.decomposer.queryDeadline();
+		
+		List<String> urls = new ArrayList<String>();
+		String queryLine = null;
+		for (String line : lines) {
+			line = line.trim();
+			if (line.contains("QUERY")) {
+				queryLine = line;
+			} else if (!line.isEmpty()) {
+				urls.add(line);
+			}
+		}
+		if (queryLine == null) {
+			throw new IOException("The query file has no QUERY line");
+		}
+		List<Future<PageRecord>> fetched = this.fetcher.submitAll(urls); // Downloaded while the query is made
+		
+		// The query features, and the scores that were made with them
+		PageRecord query = PageRecord.parse(queryLine);
+		String queryHash = ArtifactStore.contentHash(query.sentences);
+		ArtifactStore.Entry queryEntry = this.queries.get(queryLine);
+		String options = this.decomposer.options();
+		List<FeatureRecord> queryFeatures = stored(queryEntry, queryHash, options);
+		Map<String, Double> storedScores = new HashMap<String, Double>();
+		if (queryFeatures != null) {
+			storedScores = queryEntry.scores();
+			this.report.put(queryLine, "unchanged, query features and scores reused");
+		} else { // The stored scores were made with other query features or other options
+			queryFeatures = artifacts(this.queries, queryLine, queryEntry, query, queryHash, deadline);
+			queryEntry = this.queries.get(queryLine);
+		}
+		
+		// Only the webpages without a stored score are compared against the query
+		final Map<String, Double> newScores = new HashMap<String, Double>();
+		SemanticDistance.PageReader reader = new SemanticDistance.PageReader() {
+			protected void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) {
+				newScores.put(url, SemanticDistance.score(this.queryNouns, this.queryVerbs, nounTwo, verbTwo));
+			}
+		};
+		for (FeatureRecord record : queryFeatures) {
+			reader.add(record);
+		}
+		Map<String, String> hashes = new LinkedHashMap<String, String>(); // Hash of each webpage that could be fetched
+		for (Future<PageRecord> pending : fetched) {
+			PageRecord page = PageFetcher.get(pending);
+			if (page.isFailed()) {
+				this.report.put(page.url, "could not be fetched: " + page.error);
+				continue;
+			}
+			if (hashes.containsKey(page.url)) { // Listed twice, it is scored once
+				continue;
+			}
+			String hash = ArtifactStore.contentHash(page.sentences);
+			if (storedScores.containsKey(ArtifactStore.scoreKey(page.url, hash))) {
+				hashes.put(page.url, hash);
+				this.report.put(page.url, "unchanged, score reused");
+				this.parsesSkipped++;
+				this.decompositionsSkipped++;
+				this.scoresSkipped++;
+				continue;
+			}
+			List<FeatureRecord> features = artifacts(this.pages, page.url, this.pages.get(page.url), page, hash, deadline);
+			hashes.put(page.url, hash);
+			for (FeatureRecord record : features) {
+				reader.add(record);
+			}
+			this.scored++;
+		}
+		reader.finish();
+		
+		// The scores of the webpages now in the list, in the order of the list
+		Map<String, Double> scores = new HashMap<String, Double>();
+		List<ScoreRecord> results = new ArrayList<ScoreRecord>();
+		for (String url : urls) {
+			String hash = hashes.get(url);
+			if (hash != null) {
+				String key = ArtifactStore.scoreKey(url, hash);
+				Double score = newScores.containsKey(url) ? newScores.get(url) : storedScores.get(key);
+				scores.put(key, score);
+				results.add(new ScoreRecord(url, score));
+			} else { // Not stored, the webpage is fetched again next time
+				results.add(ScoreRecord.failed(url));
+			}
+		}
+		this.queries.putScores(queryEntry, scores);
+		return results;
+	}
+	
+	// Output is the stored features if they were made from the sentences with the given hash with the given Decomposer options and no budget cut them short, or else null
+	private static List<FeatureRecord> stored(ArtifactStore.Entry entry, String hash, String options) throws IOException {
+		if (entry == null || !entry.contentHash.equals(hash) || !options.equals(entry.options)) {
+			return null;
+		}
+		List<FeatureRecord> features = entry.features();
+		for (FeatureRecord record : features) {
+			if (record.truncated) {
+				return null;
+			}
+		}
+		return features;
+	}
+	
+	// Makes the features of a webpage or a query, only the stages whose stored artifacts cannot be used are run
+	// Input is the store and the key of the artifacts, the stored entry (null if there is none), the webpage or query with the hash of its sentences, and the deadline of the query
+	// Output is the features, which are stored
+	private List<FeatureRecord> artifacts(ArtifactStore store, String key, ArtifactStore.Entry entry, PageRecord page, String hash, long deadline) throws IOException {
+		boolean webpage = store == this.pages; // Only the webpages are counted in the summary
+		String options = this.decomposer.options();
+		List<FeatureRecord> features = stored(entry, hash, options);
+		if (features != null) {
+			this.report.put(key, "unchanged, features reused");
+			if (webpage) {
+				this.parsesSkipped++;
+				this.decompositionsSkipped++;
+			}
+			return features;
+		}
+		List<FeatureRecord> chains;
+		if (entry != null && entry.contentHash.equals(hash)) { // Cut short last time or made with other options, only the decomposition is done again since the chains do not depend on the options
+			chains = entry.chains();
+			this.report.put(key, options.equals(entry.options) ? "unchanged, chains decomposed again" : "unchanged, chains decomposed again with the new options");
+			if (webpage) {
+				this.parsesSkipped++;
+			}
+		} else {
+			chains = this.parser.copy().parsePage(page);
+			this.report.put(key, entry == null ? "new, parsed and decomposed" : "changed, parsed and decomposed");
+		}
+		Decomposer decomposer = this.decomposer.copy();
+		features = new ArrayList<FeatureRecord>();
+		for (FeatureRecord record : chains) {
+			features.add(decomposer.decompose(record, deadline));
+		}
+		store.put(key, hash, options, chains, features);
+		return features;
+	}
+	
+	// Output is what was done with each line of the last query file and which stages were skipped
+	public String toString() {
+		StringBuilder summary = new StringBuilder("IncrementalScorer:\n");
+		for (Map.Entry<String, String> line : this.report.entrySet()) {
+			summary.append(line.getKey()).append(": ").append(line.getValue()).append('\n');
+		}
+		summary.append("tag and parse skipped for ").append(this.parsesSkipped).append(" webpages, decompose skipped for ").append(this.decompositionsSkipped);
+		summary.append(", SemanticDistance skipped for ").append(this.scoresSkipped).append(" and run for ").append(this.scored);
+		return summary.toString();
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length != 2) { // See if the number of command line input is correct
+			System.out.println("java IncrementalScorer <query textfile path> <output distance textfile path>");
+			return;
+		}
+		
+		// The decomposer reads the compiled snapshot of the dictionary if there is one
+		SynsetGraph graph;
+		IRAMDictionary dictionary = null;
+		if (Decomposer.SNAPSHOT_PATH.isFile()) {
+			graph = CompiledSynsetGraph.open(Decomposer.SNAPSHOT_PATH);
+		} else {
+			dictionary = new RAMDictionary(Decomposer.DICTIONARY_PATH, ILoadPolicy.NO_LOAD);
+			dictionary.open();
+			graph = new JwiSynsetGraph(dictionary);
+		}
+		ExecutorService fetchThreads = Executors.newFixedThreadPool(FETCH_THREADS);
+		try { // The threads are stopped even if the scoring fails, or else the program would not exit
+			ExpansionCache expansions = new ExpansionCache(graph, ExpansionCache.DEFAULT_MAX_ENTRIES);
+			if (WithoutMapReduce.EXPANSION_CACHE_PATH.isFile()) {
+				expansions.load(WithoutMapReduce.EXPANSION_CACHE_PATH);
+			}
+			PageFetcher fetcher = new PageFetcher(fetchThreads);
+			fetcher.setCache(new PageCache(WithoutMapReduce.PAGE_CACHE_PATH, WithoutMapReduce.PAGE_CACHE_BYTES, WithoutMapReduce.PAGE_CACHE_TTL));
+			ArtifactStore pages = new ArtifactStore(new File(ARTIFACT_STORE_PATH, "pages"));
+			ArtifactStore queries = new ArtifactStore(new File(ARTIFACT_STORE_PATH, "queries"));
+			IncrementalScorer scorer = new IncrementalScorer(new Parser(), new Decomposer(expansions), fetcher, pages, queries);
+			
+			StringBuilder output = new StringBuilder();
+			for (ScoreRecord score : scorer.score(LineReader.readLines(args[0]))) {
+				output.append(output.length() == 0 ? "" : "\n").append(score.toLine());
+			}
+			SemanticDistance.writeTxt(args[1], output.toString());
+			
+			System.out.println(scorer);
+			System.out.println(expansions);
+			expansions.save(WithoutMapReduce.EXPANSION_CACHE_PATH);
+		} finally {
+			fetchThreads.shutdown();
+			if (dictionary != null) {
+				dictionary.close();
+			}
+		}
+	}
+}
\ No newline at end of file
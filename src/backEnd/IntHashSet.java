@@ -0,0 +1,83 @@
+package backEnd;
+
+import java.util.Arrays;
+
+// The IntHashSet class is a set of int values kept in one open addressing array, without boxing the values
+// It is used for the synset offsets visited during decomposition, which are tested for every related synset
+class IntHashSet {
+	private static final int FREE = Integer.MIN_VALUE; // Marks an empty slot, so this value cannot be stored
+	
+	private int[] slots;
+	private int size;
+	
+	IntHashSet() {
+		this(64);
+	}
+	
+	IntHashSet(int expected) {
+		int capacity = 16;
+		while (capacity < expected * 2) {
+			capacity <<= 1;
+		}
+		this.slots = new int[capacity];
+		Arrays.fill(this.slots, FREE);
+	}
+	
+	// Adds a value
+	// Output is true if the value was not in the set yet
+	boolean add(int value) {
+		int mask = this.slots.length - 1;
+		int i = mix(value) & mask;
+		while (this.slots[i] != FREE) {
+			if (this.slots[i] == value) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		this.slots[i] = value;
+		this.size++;
+		if (this.size * 2 > this.slots.length) {
+			grow();
+		}
+		return true;
+	}
+	
+	boolean contains(int value) {
+		int mask = this.slots.length - 1;
+		int i = mix(value) & mask;
+		while (this.slots[i] != FREE) {
+			if (this.slots[i] == value) {
+				return true;
+			}
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+	
+	int size() {
+		return this.size;
+	}
+	
+	void clear() {
+		Arrays.fill(this.slots, FREE);
+		this.size = 0;
+	}
+	
+	private void grow() {
+		int[] old = this.slots;
+		this.slots = new int[old.length * 2];
+		Arrays.fill(this.slots, FREE);
+		this.size = 0;
+		for (int value : old) {
+			if (value != FREE) {
+				add(value);
+			}
+		}
+	}
+	
+	// Spreads the bits so offsets that are close together do not fill neighbouring slots
+	private static int mix(int value) {
+		int h = value * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package backEnd;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+// The IntList class is a growing list of int values kept in one array, without boxing the values
+class IntList {
+	private int[] values;
+	private int size;
+	
+	IntList() {
+		this(16);
+	}
+	
+	IntList(int capacity) {
+		this.values = new int[Math.max(capacity, 1)];
+	}
+	
+	void add(int value) {
+		if (this.size == this.values.length) {
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		}
+		this.values[this.size++] = value;
+	}
+	
+	int get(int index) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + this.size);
+		}
+		return this.values[index];
+	}
+	
+	int size() {
+		return this.size;
+	}
+	
+	void clear() {
+		this.size = 0;
+	}
+	
+	int[] toArray() {
+		return Arrays.copyOf(this.values, this.size);
+	}
+	
+	void writeTo(DataOutput out) throws IOException {
+		for (int i = 0; i < this.size; i++) {
+			out.writeInt(this.values[i]);
+		}
+	}
+}
\ No newline at end of file
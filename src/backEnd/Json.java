@@ -0,0 +1,231 @@
+package backEnd;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The Json class reads and writes the small JSON documents of the scoring server, so no JSON library is needed
+// Objects are read into maps keeping the order of their fields, arrays into lists, numbers into doubles and true, false and null into Boolean and null
+public class Json {
+	private String text;
+	private int position;
+	
+	private Json(String text) {
+		this.text = text;
+	}
+	
+	// Input is a JSON document
+	// Output is its value, an IllegalArgumentException tells where the document is not valid JSON
+	public static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.value();
+		json.skipSpaces();
+		if (json.position < text.length()) {
+			throw json.error("Unexpected text after the value");
+		}
+		return value;
+	}
+	
+	// Output is the string as a JSON string, quotes included
+	public static String quote(String value) {
+		StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		return out.append('"').toString();
+	}
+	
+	// Output is the number as a JSON number, JSON has no NaN or infinity so those are written as null
+	public static String number(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return "null";
+		}
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+	
+	private Object value() {
+		skipSpaces();
+		if (this.position >= this.text.length()) {
+			throw error("Unexpected end of the document");
+		}
+		char c = this.text.charAt(this.position);
+		switch (c) {
+		case '{':
+			return object();
+		case '[':
+			return array();
+		case '"':
+			return string();
+		case 't':
+			word("true");
+			return Boolean.TRUE;
+		case 'f':
+			word("false");
+			return Boolean.FALSE;
+		case 'n':
+			word("null");
+			return null;
+		default:
+			return number();
+		}
+	}
+	
+	private Map<String, Object> object() {
+		Map<String, Object> fields = new LinkedHashMap<String, Object>();
+		this.position++;
+		skipSpaces();
+		if (next('}')) {
+			return fields;
+		}
+		do {
+			skipSpaces();
+			if (this.position >= this.text.length() || this.text.charAt(this.position) != '"') {
+				throw error("Expected a field name");
+			}
+			String name = string();
+			skipSpaces();
+			if (!next(':')) {
+				throw error("Expected ':'");
+			}
+			fields.put(name, value());
+			skipSpaces();
+		} while (next(','));
+		if (!next('}')) {
+			throw error("Expected ',' or '}'");
+		}
+		return fields;
+	}
+	
+	private List<Object> array() {
+		List<Object> values = new ArrayList<Object>();
+		this.position++;
+		skipSpaces();
+		if (next(']')) {
+			return values;
+		}
+		do {
+			values.add(value());
+			skipSpaces();
+		} while (next(','));
+		if (!next(']')) {
+			throw error("Expected ',' or ']'");
+		}
+		return values;
+	}
+	
+	private String string() {
+		StringBuilder out = new StringBuilder();
+		this.position++; // Opening quote
+		while (this.position < this.text.length()) {
+			char c = this.text.charAt(this.position++);
+			if (c == '"') {
+				return out.toString();
+			}
+			if (c != '\\') {
+				out.append(c);
+				continue;
+			}
+			if (this.position >= this.text.length()) {
+				break;
+			}
+			char escaped = this.text.charAt(this.position++);
+			switch (escaped) {
+			case 'b':
+				out.append('\b');
+				break;
+			case 'f':
+				out.append('\f');
+				break;
+			case 'n':
+				out.append('\n');
+				break;
+			case 'r':
+				out.append('\r');
+				break;
+			case 't':
+				out.append('\t');
+				break;
+			case 'u':
+				if (this.position + 4 > this.text.length()) {
+					throw error("Incomplete \\u escape");
+				}
+				try {
+					out.append((char) Integer.parseInt(this.text.substring(this.position, this.position + 4), 16));
+				} catch (NumberFormatException e) {
+					throw error("Invalid \\u escape");
+				}
+				this.position += 4;
+				break;
+			default: // '"', '\\' and '/'
+				out.append(escaped);
+			}
+		}
+		throw error("Unterminated string");
+	}
+	
+	private Double number() {
+		int start = this.position;
+		while (this.position < this.text.length() && "+-0123456789.eE".indexOf(this.text.charAt(this.position)) >= 0) {
+			this.position++;
+		}
+		try {
+			return Double.valueOf(this.text.substring(start, this.position));
+		} catch (NumberFormatException e) {
+			this.position = start;
+			throw error("Expected a value");
+		}
+	}
+	
+	private void word(String word) {
+		if (!this.text.startsWith(word, this.position)) {
+			throw error("Expected a value");
+		}
+		this.position += word.length();
+	}
+	
+	// Output is whether the next character is the given one, in which case it is skipped
+	private boolean next(char c) {
+		if (this.position < this.text.length() && this.text.charAt(this.position) == c) {
+			this.position++;
+			return true;
+		}
+		return false;
+	}
+	
+	private void skipSpaces() {
+		while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position))) {
+			this.position++;
+		}
+	}
+	
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at character " + this.position);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package backEnd;
+
+import edu.mit.jwi.IDictionary;
+import edu.mit.jwi.item.IIndexWord;
+import edu.mit.jwi.item.ISynset;
+import edu.mit.jwi.item.ISynsetID;
+import edu.mit.jwi.item.POS;
+import edu.mit.jwi.item.SynsetID;
+
+// The JwiSynsetGraph class reads the synset graph straight from a JWI dictionary
+// The ID of a synset is its offset in the data file with the part-of-speech number in the low bits
+// It remembers the last synset it read, so it is not thread-safe
+public class JwiSynsetGraph implements SynsetGraph {
+	private IDictionary dictionary;
+	
+	private int currentId = -1;
+	private ISynset current;
+	
+	public JwiSynsetGraph(IDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+	
+	public int lookup(String term, POS pos) {
+		// retrieve term from dictionary
+		IIndexWord idxWord = this.dictionary.getIndexWord(term, pos);
+		if (idxWord == null) {
+			return -1;
+		}
+		// the synset of the first sense of the term
+		ISynset synset = this.dictionary.getWord(idxWord.getWordIDs().get(0)).getSynset();
+		this.currentId = id(synset.getID());
+		this.current = synset;
+		return this.currentId;
+	}
+	
+	public int relatedCount(int synset, int relation) {
+		return synset(synset).getRelatedSynsets(RELATIONS[relation]).size();
+	}
+	
+	public int related(int synset, int relation, int index) {
+		return id(synset(synset).getRelatedSynsets(RELATIONS[relation]).get(index));
+	}
+	
+	public int wordCount(int synset) {
+		return synset(synset).getWords().size();
+	}
+	
+	public String word(int synset, int index) {
+		return synset(synset).getWords().get(index).getLemma();
+	}
+	
+	public boolean isThreadSafe() {
+		return false;
+	}
+	
+	public String toString() {
+		return "JwiSynsetGraph " + this.dictionary.getVersion();
+	}
+	
+	// Output is the ID of a JWI synset ID
+	public static int id(ISynsetID sid) {
+		return (sid.getOffset() << 3) | sid.getPOS().getNumber();
+	}
+	
+	// Output is the JWI synset ID of an ID
+	public static ISynsetID synsetID(int id) {
+		return new SynsetID(id >>> 3, POS.getPartOfSpeech(id & 7));
+	}
+	
+	private ISynset synset(int id) {
+		if (id != this.currentId) {
+			this.current = this.dictionary.getSynset(synsetID(id));
+			this.currentId = id;
+		}
+		return this.current;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package backEnd;
+
+// The KeyValue class holds one key-value pair read or written by a MapReduce job
+public class KeyValue<V> {
+	public final String key;
+	public final V value;
+	
+	public KeyValue(String key, V value) {
+		this.key = key;
+		this.value = value;
+	}
+}
\ No newline at end of file
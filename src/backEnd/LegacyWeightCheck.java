@@ -0,0 +1,105 @@
+package backEnd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import edu.mit.jwi.IRAMDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
+
+// The LegacyWeightCheck class checks that the saturating weights of the Decomposer give the same features as the original int weights of setLegacyWeights(true)
+// as long as no weight product overflows an int, by decomposing random chains of keywords both ways
+// Chains where a product overflowed are counted apart, the two options are meant to differ there
+public class LegacyWeightCheck {
+	private static final long SEED = 42; // The same chains on every run unless another seed is given
+	
+	// Input is a keywords file in the Parser output format, txt or binary, the number of random chains, the keywords in each chain,
+	// the feature budget for best-first decomposition (0 for level by level) and an optional seed
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4 || args.length > 5) { // Test if the number of command line arguments is correct
+			System.out.println("java LegacyWeightCheck <keywords path, txt or binary> <chains> <keywords per chain> <feature budget for best-first decomposition, 0 for level by level> [seed]");
+			return;
+		}
+		int chains = Integer.parseInt(args[1]);
+		int length = Integer.parseInt(args[2]);
+		int featureBudget = Integer.parseInt(args[3]);
+		Random random = new Random(args.length == 5 ? Long.parseLong(args[4]) : SEED);
+		
+		// The keywords of each type found in the file, the random chains are drawn from them
+		Set<String> verbSet = new LinkedHashSet<String>();
+		Set<String> nounSet = new LinkedHashSet<String>();
+		BinaryRecords.RecordReader in = BinaryRecords.open(args[0]);
+		try {
+			FeatureRecord record;
+			while ((record = in.read()) != null) {
+				(record.type.equals(FeatureRecord.VERB) ? verbSet : nounSet).addAll(record.terms);
+			}
+		} finally {
+			in.close();
+		}
+		List<String> verbs = new ArrayList<String>(verbSet);
+		List<String> nouns = new ArrayList<String>(nounSet);
+		if (verbs.isEmpty() || nouns.isEmpty()) {
+			System.out.println("The keywords file needs both verbs and nouns");
+			return;
+		}
+		
+		// The decomposer reads the compiled snapshot of the dictionary if there is one, both options share the cache since the synsets do not depend on the weights
+		SynsetGraph graph;
+		IRAMDictionary dictionary = null;
+		if (Decomposer.SNAPSHOT_PATH.isFile()) {
+			graph = CompiledSynsetGraph.open(Decomposer.SNAPSHOT_PATH);
+		} else {
+			dictionary = new RAMDictionary(Decomposer.DICTIONARY_PATH, ILoadPolicy.NO_LOAD);
+			dictionary.open();
+			graph = new JwiSynsetGraph(dictionary);
+		}
+		try {
+			ExpansionCache expansions = new ExpansionCache(graph, ExpansionCache.DEFAULT_MAX_ENTRIES);
+			Decomposer saturating = new Decomposer(expansions);
+			Decomposer legacy = new Decomposer(expansions);
+			legacy.setLegacyWeights(true);
+			if (featureBudget > 0) {
+				saturating.setBestFirst(true);
+				saturating.setFeatureBudget(featureBudget);
+				legacy.setBestFirst(true);
+				legacy.setFeatureBudget(featureBudget);
+			}
+			
+			int agreed = 0;
+			int overflowed = 0;
+			int differed = 0;
+			for (int c = 0; c < chains; c++) {
+				boolean verb = random.nextBoolean();
+				List<String> pool = verb ? verbs : nouns;
+				List<String> terms = new ArrayList<String>();
+				for (int t = 0; t < length; t++) {
+					terms.add(pool.get(random.nextInt(pool.size())));
+				}
+				FeatureRecord chain = new FeatureRecord("chain" + c, verb ? FeatureRecord.VERB : FeatureRecord.NOUN, terms);
+				
+				long overflows = legacy.getOverflows();
+				FeatureRecord expected = legacy.decompose(chain);
+				FeatureRecord actual = saturating.decompose(chain);
+				if (legacy.getOverflows() != overflows) { // Above the overflow threshold the original weights wrap around
+					overflowed++;
+				} else if (expected.terms.equals(actual.terms) && Arrays.equals(expected.weights, actual.weights)) {
+					agreed++;
+				} else {
+					differed++;
+					System.out.println("Different features for " + chain.toLine() + ":\n legacy " + expected.toLine() + "\n saturating " + actual.toLine());
+				}
+			}
+			System.out.println(agreed + " chains agree, " + differed + " differ, " + overflowed + " skipped because a weight overflowed an int");
+		} finally {
+			if (dictionary != null) {
+				dictionary.close();
+			}
+		}
+	}
+}
\ No newline at end of file
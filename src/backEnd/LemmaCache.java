@@ -0,0 +1,116 @@
+package backEnd;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.process.Morphology;
+
+// The LemmaCache class remembers what the Parser found for each tagged token, such as Apollo_NNP
+// A webpage repeats the same few thousand word and tag pairs, so the split, the lower casing and the stemming of a pair are only done once
+// The cache is shared by every thread, when it holds too many tokens it is emptied and fills up again with the tokens still in use
+public class LemmaCache {
+	public static final int DEFAULT_MAX_ENTRIES = 100000;
+	
+	private static final LemmaCache SHARED = new LemmaCache(DEFAULT_MAX_ENTRIES);
+	
+	private static final String NOUN = "NN";
+	private static final String VERB = "VB";
+	
+	private ConcurrentMap<String, Token> tokens; // Keyed by the tagged token as the tagger wrote it
+	private int maxEntries;
+	
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+	private AtomicLong flushes = new AtomicLong(); // Times the cache was emptied because it was full
+	private AtomicLong chars = new AtomicLong(); // Total length of the cached strings, for the memory estimate
+	
+	public LemmaCache(int maxEntries) {
+		this.tokens = new ConcurrentHashMap<String, Token>();
+		this.maxEntries = maxEntries;
+	}
+	
+	// The cache used by every Parser unless it is given another one
+	public static LemmaCache shared() {
+		return SHARED;
+	}
+	
+	// What the Parser needs to know about a tagged token
+	public static class Token {
+		public final String word; // The word as written
+		public final String lowerCase; // The word in lower case, for the stop word test
+		public final String tag;
+		public final boolean noun;
+		public final boolean verb;
+		public final String lemma; // The base form of the word
+		
+		private Token(String word, String tag, String lemma) {
+			this.word = word;
+			this.lowerCase = word.toLowerCase();
+			this.tag = tag;
+			this.noun = tag.contains(NOUN);
+			this.verb = tag.contains(VERB);
+			this.lemma = lemma;
+		}
+	}
+	
+	// Looks up a tagged token, working it out on a miss
+	// Input is a token in the Word_TT form written by the tagger and the stemmer of the calling thread
+	// Output is the word, its tag and its lemma
+	public Token token(String tagged, Morphology morphology) {
+		Token token = this.tokens.get(tagged);
+		if (token != null) {
+			this.hits.incrementAndGet();
+			return token;
+		}
+		this.misses.incrementAndGet();
+		
+		// Same word and tag as tagged.split("_")[0] and [1]
+		int first = tagged.indexOf('_');
+		int second = tagged.indexOf('_', first + 1);
+		String word = tagged.substring(0, first);
+		String tag = second < 0 ? tagged.substring(first + 1) : tagged.substring(first + 1, second);
+		
+		token = new Token(word, tag, morphology.lemma(word, tag)); // Stem the word to reduce it to its base form
+		if (this.tokens.size() >= this.maxEntries) {
+			this.tokens.clear();
+			this.chars.set(0);
+			this.flushes.incrementAndGet();
+		}
+		if (this.tokens.putIfAbsent(tagged, token) == null) {
+			this.chars.addAndGet(tagged.length() + word.length() * 2 + tag.length() + token.lemma.length());
+		}
+		return token;
+	}
+	
+	public long getHits() {
+		return this.hits.get();
+	}
+	
+	public long getMisses() {
+		return this.misses.get();
+	}
+	
+	public long getFlushes() {
+		return this.flushes.get();
+	}
+	
+	public double hitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+	
+	public int size() {
+		return this.tokens.size();
+	}
+	
+	// Estimates the heap used by the cached tokens: the strings, the token objects and the map entries
+	public long memoryBytes() {
+		return this.chars.get() * 2 + size() * (3 * 40L + 40 + 32);
+	}
+	
+	public String toString() {
+		return "LemmaCache hits=" + getHits() + " misses=" + getMisses() + " hitRate=" + String.format("%.3f", hitRate()) + " entries=" + size() + " flushes=" + getFlushes() + " bytes=" + memoryBytes();
+	}
+}
\ No newline at end of file
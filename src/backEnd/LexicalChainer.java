@@ -0,0 +1,250 @@
+package backEnd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+// The LexicalChainer class groups the sentences of a webpage that share a noun or a verb into lexical chains
+// It gives exactly the chains, chain order and word order of merging the sentence lists pairwise until no two lists share a word,
+// but finds the lists to merge through an inverted map from each word to its chains instead of comparing every pair of lists
+// Merged chains are tracked with a disjoint-set structure so the inverted map never has to be rewritten
+class LexicalChainer {
+	private static final long SEED = 7; // The same synthetic pages on every run
+	
+	private List<List<String>> nouns;
+	private List<List<String>> verbs;
+	private List<Set<String>> nounSets; // Same words as nouns, for constant time lookups
+	private List<Set<String>> verbSets;
+	
+	private Map<String, List<Integer>> nounChains; // Chains each noun was first seen in
+	private Map<String, List<Integer>> verbChains;
+	
+	private int[] parent; // Disjoint-set forest, a merged chain points at the chain it was merged into
+	private boolean[] alive; // False once a chain has been merged into another
+	
+	private int[] stamp; // Marks the chains already collected for the current word
+	private int stampCounter;
+	
+	private LexicalChainer(List<List<String>> nounFeature, List<List<String>> verbFeature) {
+		int n = nounFeature.size();
+		this.nouns = nounFeature;
+		this.verbs = verbFeature;
+		this.nounSets = new ArrayList<Set<String>>(n);
+		this.verbSets = new ArrayList<Set<String>>(n);
+		this.nounChains = new HashMap<String, List<Integer>>();
+		this.verbChains = new HashMap<String, List<Integer>>();
+		this.parent = new int[n];
+		this.alive = new boolean[n];
+		this.stamp = new int[n];
+		for (int i = 0; i < n; i++) {
+			this.nounSets.add(index(nounFeature.get(i), i, this.nounChains));
+			this.verbSets.add(index(verbFeature.get(i), i, this.verbChains));
+			this.parent[i] = i;
+			this.alive[i] = true;
+		}
+	}
+	
+	// Merges the noun and verb lists of related sentences
+	// Input is the noun list and the verb list of each sentence, in sentence order
+	// Output is both lists replaced by the lists of each chain, in the order of the first sentence of each chain
+	public static void chain(List<List<String>> nounFeature, List<List<String>> verbFeature) {
+		new LexicalChainer(nounFeature, verbFeature).run();
+	}
+	
+	// The pairwise merge takes the chain at the current position and merges into it the first chain that shares a word with it, until none does.
+	// If the merged chain came before the current position, the chains after it shift down and the current position moves on to the next chain
+	private void run() {
+		int n = this.alive.length;
+		int current = 0;
+		TreeSet<Integer> candidates = new TreeSet<Integer>(); // Live chains sharing a word with the current chain, the first one is merged next
+		while (current < n) {
+			candidates.clear();
+			collect(current, this.nouns.get(current), this.nounChains, candidates);
+			collect(current, this.verbs.get(current), this.verbChains, candidates);
+			while (!candidates.isEmpty()) {
+				int other = candidates.pollFirst();
+				List<String> newNouns = merge(this.nouns.get(other), this.nouns.get(current), this.nounSets.get(current));
+				List<String> newVerbs = merge(this.verbs.get(other), this.verbs.get(current), this.verbSets.get(current));
+				this.alive[other] = false;
+				this.parent[other] = current;
+				if (other < current) {
+					break;
+				}
+				collect(current, newNouns, this.nounChains, candidates); // Only the new words can relate the current chain to more chains
+				collect(current, newVerbs, this.verbChains, candidates);
+			}
+			do {
+				current++;
+			} while (current < n && !this.alive[current]);
+		}
+		
+		// Keep the chains that were not merged into another one
+		List<List<String>> nounChains = new ArrayList<List<String>>();
+		List<List<String>> verbChains = new ArrayList<List<String>>();
+		for (int i = 0; i < n; i++) {
+			if (this.alive[i]) {
+				nounChains.add(this.nouns.get(i));
+				verbChains.add(this.verbs.get(i));
+			}
+		}
+		this.nouns.clear();
+		this.nouns.addAll(nounChains);
+		this.verbs.clear();
+		this.verbs.addAll(verbChains);
+	}
+	
+	// Appends the words of one chain that another chain does not have yet, keeping their order
+	// Output is the list of appended words
+	private static List<String> merge(List<String> from, List<String> into, Set<String> intoSet) {
+		List<String> added = new ArrayList<String>();
+		for (String word : from) {
+			if (intoSet.add(word)) {
+				into.add(word);
+				added.add(word);
+			}
+		}
+		return added;
+	}
+	
+	// Adds to the candidates every live chain other than the current one that has one of the words
+	private void collect(int current, List<String> words, Map<String, List<Integer>> chains, TreeSet<Integer> candidates) {
+		for (String word : words) {
+			List<Integer> ids = chains.get(word);
+			if (ids.size() == 1 && find(ids.get(0)) == current) {
+				continue;
+			}
+			this.stampCounter++;
+			List<Integer> roots = new ArrayList<Integer>(ids.size());
+			for (Integer id : ids) {
+				int root = find(id);
+				if (this.stamp[root] != this.stampCounter) {
+					this.stamp[root] = this.stampCounter;
+					roots.add(root);
+					if (root != current) {
+						candidates.add(root);
+					}
+				}
+			}
+			chains.put(word, roots); // Chains merged into the same chain only need to be looked at once from now on
+		}
+	}
+	
+	private int find(int id) {
+		int root = id;
+		while (this.parent[root] != root) {
+			root = this.parent[root];
+		}
+		while (this.parent[id] != root) { // Path compression
+			int next = this.parent[id];
+			this.parent[id] = root;
+			id = next;
+		}
+		return root;
+	}
+	
+	private static Set<String> index(List<String> words, int id, Map<String, List<Integer>> chains) {
+		Set<String> set = new HashSet<String>();
+		for (String word : words) {
+			if (set.add(word)) {
+				List<Integer> ids = chains.get(word);
+				if (ids == null) {
+					ids = new ArrayList<Integer>(1);
+					chains.put(word, ids);
+				}
+				ids.add(id);
+			}
+		}
+		return set;
+	}
+	
+	// The original pairwise merge of Parser.chainFeature, kept to check and time chain against it
+	// Every pair of lists is compared until two share a word, the later one is merged into the earlier one and the search starts again from the beginning
+	static void pairwise(List<List<String>> nounFeature, List<List<String>> verbFeature) {
+		int f = 0;
+		int t = 0;
+		int len = 0;
+		boolean found;
+		while (f < nounFeature.size()) {
+			found = false;
+			for (int o = 0; o < nounFeature.size(); o++) {
+				if ((o != f) && (!Collections.disjoint(nounFeature.get(f), nounFeature.get(o)) || !Collections.disjoint(verbFeature.get(f), verbFeature.get(o)))) {
+					t = 0;
+					len = Math.max(nounFeature.get(o).size(), verbFeature.get(o).size());
+					while (t < len) {
+						if (t < nounFeature.get(o).size() && !nounFeature.get(f).contains(nounFeature.get(o).get(t))) {
+							nounFeature.get(f).add(nounFeature.get(o).get(t));
+						}
+						if (t < verbFeature.get(o).size() && !verbFeature.get(f).contains(verbFeature.get(o).get(t))) {
+							verbFeature.get(f).add(verbFeature.get(o).get(t));
+						}
+						t++;
+					}
+					nounFeature.remove(o);
+					verbFeature.remove(o);
+					found = true;
+					break;
+				}
+			}
+			if (found == false) {
+				f++;
+			}
+		}
+	}
+	
+	// Output is the word lists of a synthetic page, each sentence gets up to the given number of words drawn from a vocabulary of the given size
+	private static List<List<String>> page(Random random, int sentences, int vocabulary, int maxWords) {
+		List<List<String>> page = new ArrayList<List<String>>(sentences);
+		for (int s = 0; s < sentences; s++) {
+			List<String> words = new ArrayList<String>();
+			int count = random.nextInt(maxWords + 1);
+			for (int w = 0; w < count; w++) {
+				words.add("w" + random.nextInt(vocabulary));
+			}
+			page.add(words);
+		}
+		return page;
+	}
+	
+	private static List<List<String>> copy(List<List<String>> lists) {
+		List<List<String>> copy = new ArrayList<List<String>>(lists.size());
+		for (List<String> list : lists) {
+			copy.add(new ArrayList<String>(list));
+		}
+		return copy;
+	}
+	
+	// Times chain against the original pairwise merge on synthetic pages and checks that both give the same chains
+	public static void main(String[] args) {
+		if (args.length == 0) { // Test if the number of command line arguments is correct
+			System.out.println("java LexicalChainer <sentences per page>..., for example 1000 10000");
+			return;
+		}
+		Random random = new Random(SEED);
+		for (String arg : args) {
+			int sentences = Integer.parseInt(arg);
+			List<List<String>> nouns = page(random, sentences, 2 * sentences, 6); // Up to six nouns and three verbs in a sentence like a news article
+			List<List<String>> verbs = page(random, sentences, sentences, 3);
+			
+			List<List<String>> chainNouns = copy(nouns);
+			List<List<String>> chainVerbs = copy(verbs);
+			long begin = System.nanoTime();
+			chain(chainNouns, chainVerbs);
+			double chainMillis = (System.nanoTime() - begin) / 1e6;
+			
+			List<List<String>> pairwiseNouns = copy(nouns);
+			List<List<String>> pairwiseVerbs = copy(verbs);
+			begin = System.nanoTime();
+			pairwise(pairwiseNouns, pairwiseVerbs);
+			double pairwiseMillis = (System.nanoTime() - begin) / 1e6;
+			
+			boolean same = chainNouns.equals(pairwiseNouns) && chainVerbs.equals(pairwiseVerbs);
+			System.out.println(String.format("%d sentences, %d chains: chain %.1f ms, pairwise merge %.1f ms, same chains: %b", sentences, chainNouns.size(), chainMillis, pairwiseMillis, same));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package backEnd;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+// The LineReader class reads a txt file one line at a time through a file channel, so only the current line and a fixed buffer are kept in memory
+// The txt files of the backEnd modules are written in UTF-8, a line that is not valid UTF-8 is read as Windows-1252 instead, which is what the older files were written in
+// Lines end with "\n" or "\r\n", the line ends are not part of the lines
+public class LineReader implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024; // Bytes read from the file at once, the buffer only grows for a longer line
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Charset FALLBACK = Charset.forName("Cp1252");
+	
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); // The bytes read but not returned yet, between position and limit
+	private CharsetDecoder decoder = UTF8.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+	private boolean ended; // The whole file has been read into the buffer
+	private long lines;
+	private long fallbackLines; // Lines that were not valid UTF-8
+	
+	public LineReader(String path) throws IOException {
+		this.channel = new FileInputStream(path).getChannel();
+		this.buffer.limit(0);
+	}
+	
+	// Reads the next line
+	// Output is the line, or null at the end of the file
+	public String readLine() throws IOException {
+		int from = this.buffer.position();
+		int scanned = from;
+		while (true) {
+			for (int i = scanned; i < this.buffer.limit(); i++) {
+				if (this.buffer.get(i) == '\n') {
+					this.buffer.position(i + 1);
+					return decode(from, i);
+				}
+			}
+			if (this.ended) {
+				if (from == this.buffer.limit()) {
+					return null;
+				}
+				this.buffer.position(this.buffer.limit());
+				return decode(from, this.buffer.limit()); // The last line has no line end
+			}
+			scanned = fill();
+			from = 0;
+		}
+	}
+	
+	// Moves the bytes not returned yet to the front of the buffer and reads more of the file after them, the buffer is doubled if it is full of one line
+	// Output is the number of bytes that were already scanned for a line end
+	private int fill() throws IOException {
+		int kept = this.buffer.remaining();
+		if (kept == this.buffer.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+			larger.put(this.buffer);
+			this.buffer = larger;
+		} else {
+			this.buffer.compact();
+		}
+		while (this.buffer.hasRemaining()) {
+			if (this.channel.read(this.buffer) < 0) {
+				this.ended = true;
+				break;
+			}
+		}
+		this.buffer.flip();
+		return kept;
+	}
+	
+	// Output is the line between two positions of the buffer, without a "\r" at its end
+	private String decode(int from, int to) throws IOException {
+		if (to > from && this.buffer.get(to - 1) == '\r') {
+			to--;
+		}
+		this.lines++;
+		ByteBuffer line = ByteBuffer.wrap(this.buffer.array(), from, to - from);
+		try {
+			CharBuffer chars = this.decoder.decode(line);
+			return chars.toString();
+		} catch (CharacterCodingException e) {
+			this.fallbackLines++;
+			return new String(this.buffer.array(), from, to - from, FALLBACK);
+		}
+	}
+	
+	// Output is the number of lines read so far
+	public long getLines() {
+		return this.lines;
+	}
+	
+	// Output is the number of lines read so far that were not valid UTF-8 and were read as Windows-1252
+	public long getFallbackLines() {
+		return this.fallbackLines;
+	}
+	
+	public void close() throws IOException {
+		this.channel.close();
+	}
+	
+	// Reads all lines of a small file, such as a list of URLs
+	// Input is the txt file path
+	// Output is a list structure containing each line in the text file
+	public static List<String> readLines(String path) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		LineReader in = new LineReader(path);
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			in.close();
+		}
+		return lines;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+package backEnd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The LoadGenerator class sends scoring requests to a ScoringServer from many clients at once and measures the throughput and the latency of the answers
+// The webpages of the requests are served by a StandInWeb, so the measure does not depend on the internet
+public class LoadGenerator {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private String scoreUrl;
+	private int clients;
+	private List<Long> latencies = new ArrayList<Long>(); // Nanoseconds of each answered request
+	private AtomicInteger rejected = new AtomicInteger(); // Answered with 503
+	private AtomicInteger errors = new AtomicInteger(); // Answered with another status or not answered
+	private long elapsed; // Nanoseconds of the last run
+	
+	// Input is the URL of the /score endpoint and the number of clients sending requests at the same time
+	public LoadGenerator(String scoreUrl, int clients) {
+		this.scoreUrl = scoreUrl;
+		this.clients = clients;
+	}
+	
+	// Builds the requests for the pages of a webpages txt file, each request holds the query and the next pages in turn
+	// Input is the lines of the file, the stand-in web serving them (null to send the text of the pages instead of their URLs), the number of requests and the number of pages in each
+	// Output is the JSON body of each request
+	public static List<String> requests(List<String> lines, StandInWeb web, int count, int pagesPerRequest) {
+		String query = null;
+		List<PageRecord> pages = new ArrayList<PageRecord>();
+		for (String line : lines) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			PageRecord page = PageRecord.parse(line);
+			if (page.isQuery()) {
+				query = join(page.sentences);
+			} else {
+				pages.add(page);
+			}
+		}
+		if (query == null || pages.isEmpty()) {
+			throw new IllegalArgumentException("The webpages file needs a query line and at least one webpage");
+		}
+		List<String> requests = new ArrayList<String>();
+		int next = 0;
+		for (int r = 0; r < count; r++) {
+			StringBuilder body = new StringBuilder("{\"query\": ").append(Json.quote(query)).append(web != null ? ", \"urls\": [" : ", \"pages\": [");
+			for (int p = 0; p < pagesPerRequest; p++) {
+				PageRecord page = pages.get(next++ % pages.size());
+				if (p > 0) {
+					body.append(", ");
+				}
+				if (web != null) {
+					body.append(Json.quote(web.localUrl(page.url)));
+				} else {
+					body.append("{\"url\": ").append(Json.quote(page.url)).append(", \"text\": ").append(Json.quote(join(page.sentences))).append('}');
+				}
+			}
+			requests.add(body.append("]}").toString());
+		}
+		return requests;
+	}
+	
+	private static String join(List<String> sentences) {
+		StringBuilder text = new StringBuilder();
+		for (String sentence : sentences) {
+			text.append(text.length() == 0 ? "" : " ").append(sentence);
+		}
+		return text.toString();
+	}
+	
+	// Sends every request once, the clients take the next request as soon as they have their answer
+	public void run(final List<String> requests) throws InterruptedException {
+		final AtomicInteger next = new AtomicInteger();
+		ExecutorService threads = Executors.newFixedThreadPool(this.clients);
+		long start = System.nanoTime();
+		for (int c = 0; c < this.clients; c++) {
+			threads.execute(new Runnable() {
+				public void run() {
+					int r;
+					while ((r = next.getAndIncrement()) < requests.size()) {
+						send(requests.get(r));
+					}
+				}
+			});
+		}
+		threads.shutdown();
+		threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		this.elapsed = System.nanoTime() - start;
+	}
+	
+	// Sends one request and records how long the answer took
+	private void send(String request) {
+		long start = System.nanoTime();
+		try {
+			HttpURLConnection conn = (HttpURLConnection) new URL(this.scoreUrl).openConnection();
+			conn.setRequestMethod("POST");
+			conn.setDoOutput(true);
+			conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+			OutputStream os = conn.getOutputStream();
+			try {
+				os.write(request.getBytes(UTF8));
+			} finally {
+				os.close();
+			}
+			int status = conn.getResponseCode();
+			InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream();
+			if (in != null) { // The whole answer counts, and reading it lets the connection be reused
+				try {
+					byte[] buffer = new byte[8192];
+					while (in.read(buffer) > 0) {
+						// Only the time matters, the scores are not checked
+					}
+				} finally {
+					in.close();
+				}
+			}
+			if (status == 200) {
+				synchronized (this.latencies) {
+					this.latencies.add(System.nanoTime() - start);
+				}
+			} else if (status == 503) {
+				this.rejected.incrementAndGet();
+			} else {
+				this.errors.incrementAndGet();
+			}
+		} catch (IOException e) {
+			this.errors.incrementAndGet();
+		}
+	}
+	
+	// Output is the latency in milliseconds below which the given fraction of the answered requests fall
+	public double percentile(double fraction) {
+		List<Long> sorted;
+		synchronized (this.latencies) {
+			sorted = new ArrayList<Long>(this.latencies);
+		}
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		Collections.sort(sorted);
+		int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+		return sorted.get(Math.max(index, 0)) / 1e6;
+	}
+	
+	public String toString() {
+		int answered;
+		synchronized (this.latencies) {
+			answered = this.latencies.size();
+		}
+		double seconds = this.elapsed / 1e9;
+		return String.format("%d answered, %d rejected, %d errors in %.2f s with %d clients: %.1f requests/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms", answered, this.rejected.get(), this.errors.get(), seconds, this.clients, seconds == 0 ? 0.0 : answered / seconds, percentile(0.5), percentile(0.99), percentile(1.0));
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 4 || args.length > 6) { // Test if the number of command line arguments is correct
+			System.out.println("java LoadGenerator <webpages textfile path> <requests> <clients> <pages per request> [urls|text] [scoring server URL]");
+			return;
+		}
+		List<String> lines = LineReader.readLines(args[0]);
+		boolean text = args.length > 4 && args[4].equals("text"); // Send the text of the pages instead of having the server fetch them
+		StandInWeb web = new StandInWeb(0);
+		web.addPages(lines);
+		web.start();
+		
+		// Without a server URL a server is started in this process, it loads its models before the measure starts
+		ScoringServer server = null;
+		String scoreUrl;
+		if (args.length > 5) {
+			scoreUrl = args[5];
+		} else {
+			server = ScoringServer.create(0, Runtime.getRuntime().availableProcessors(), ScoringServer.DEFAULT_QUEUE_CAPACITY);
+			server.start();
+			scoreUrl = "http://127.0.0.1:" + server.getPort() + "/score";
+		}
+		
+		int clients = Integer.parseInt(args[2]);
+		int pagesPerRequest = Integer.parseInt(args[3]);
+		List<String> requests = requests(lines, text ? null : web, Integer.parseInt(args[1]), pagesPerRequest);
+		new LoadGenerator(scoreUrl, 1).run(requests.subList(0, 1)); // Warm up the server and its caches before measuring
+		LoadGenerator load = new LoadGenerator(scoreUrl, clients);
+		load.run(requests);
+		System.out.println(load);
+		
+		if (server != null) {
+			server.stop();
+			System.out.println(server);
+		}
+		web.stop();
+	}
+}
\ No newline at end of file
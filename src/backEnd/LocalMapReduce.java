@@ -0,0 +1,475 @@
+package backEnd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The LocalMapReduce class runs MapReduce jobs inside this process, with a number of map slots and reduce slots working at the same time
+// The input records are cut into splits and each split is a map task, whose output is sorted, combined and spilled to one file per partition whenever the buffer is full
+// Once every map task is done, each partition is a reduce task which merges its spill files in key order and hands each group of keys to the reducer
+// As in Hadoop the map side and the reduce side only meet through the spill files, and a job fails as a whole if any task fails
+public class LocalMapReduce {
+	public static final int SPLITS_PER_SLOT = 4; // Map tasks made for each map slot when the split size is chosen from the input, so a slow split does not hold up the job
+	public static final int DEFAULT_SPILL_THRESHOLD = 100000; // Map output pairs kept in memory before they are spilled
+	public static final int DEFAULT_MERGE_FACTOR = 64; // Spill files a reduce task reads at the same time
+	
+	private int mapSlots;
+	private int reduceSlots;
+	private File spillDirectory;
+	private int splitSize; // Input records in each map task, 0 to choose it from the number of input records and of map slots
+	private int spillThreshold = DEFAULT_SPILL_THRESHOLD;
+	private int mergeFactor = DEFAULT_MERGE_FACTOR;
+	
+	// Counters over all jobs run so far, named like the Hadoop task counters
+	private AtomicLong mapInputRecords = new AtomicLong();
+	private AtomicLong mapOutputRecords = new AtomicLong();
+	private AtomicLong combineInputRecords = new AtomicLong();
+	private AtomicLong combineOutputRecords = new AtomicLong();
+	private AtomicLong spilledRecords = new AtomicLong();
+	private AtomicLong spillFiles = new AtomicLong();
+	private AtomicLong reduceInputGroups = new AtomicLong();
+	private AtomicLong reduceOutputRecords = new AtomicLong();
+	
+	// Input is the number of map tasks and of reduce tasks run at the same time, and the folder for the spill files
+	public LocalMapReduce(int mapSlots, int reduceSlots, File spillDirectory) {
+		if (mapSlots <= 0 || reduceSlots <= 0) {
+			throw new IllegalArgumentException("Slots must be positive: " + mapSlots + " map, " + reduceSlots + " reduce");
+		}
+		this.mapSlots = mapSlots;
+		this.reduceSlots = reduceSlots;
+		this.spillDirectory = spillDirectory;
+	}
+	
+	// Sets the number of input records in each map task, 0 (the default) to choose it from the input
+	public void setSplitSize(int splitSize) {
+		this.splitSize = Math.max(0, splitSize);
+	}
+	
+	public void setSpillThreshold(int spillThreshold) {
+		this.spillThreshold = Math.max(1, spillThreshold);
+	}
+	
+	// Sets how many spill files a reduce task reads at the same time, more files are first merged in several passes like io.sort.factor in Hadoop
+	public void setMergeFactor(int mergeFactor) {
+		this.mergeFactor = Math.max(2, mergeFactor);
+	}
+	
+	// Runs a job
+	// Input is the job and its input records
+	// Output is the pairs written by the reducers, partition by partition and in key order within a partition
+	public <I, V, O> List<KeyValue<O>> run(MapReduceJob<I, V, O> job, List<I> inputs) throws IOException, InterruptedException {
+		int partitions = job.getReduceTasks() > 0 ? job.getReduceTasks() : this.reduceSlots;
+		File jobDirectory = new File(this.spillDirectory, job.getName() + "-" + System.nanoTime());
+		if (!jobDirectory.mkdirs()) {
+			throw new IOException("Cannot create spill folder " + jobDirectory);
+		}
+		ExecutorService mapPool = Executors.newFixedThreadPool(this.mapSlots);
+		ExecutorService reducePool = Executors.newFixedThreadPool(this.reduceSlots);
+		try {
+			// map side, the spill files of each partition are kept in task order so equal keys are reduced in input order
+			List<Future<List<List<File>>>> mapTasks = new ArrayList<Future<List<List<File>>>>();
+			int splitSize = this.splitSize > 0 ? this.splitSize : Math.max(1, (inputs.size() + this.mapSlots * SPLITS_PER_SLOT - 1) / (this.mapSlots * SPLITS_PER_SLOT));
+			for (int from = 0, task = 0; from < inputs.size(); from += splitSize, task++) {
+				mapTasks.add(mapPool.submit(new MapTask<I, V, O>(job, inputs.subList(from, Math.min(from + splitSize, inputs.size())), task, partitions, jobDirectory)));
+			}
+			List<List<File>> spills = new ArrayList<List<File>>();
+			for (int p = 0; p < partitions; p++) {
+				spills.add(new ArrayList<File>());
+			}
+			for (List<List<File>> taskSpills : await(mapTasks)) {
+				for (int p = 0; p < partitions; p++) {
+					spills.get(p).addAll(taskSpills.get(p));
+				}
+			}
+			
+			// reduce side
+			List<Future<List<KeyValue<O>>>> reduceTasks = new ArrayList<Future<List<KeyValue<O>>>>();
+			for (int p = 0; p < partitions; p++) {
+				reduceTasks.add(reducePool.submit(new ReduceTask<V, O>(job, spills.get(p))));
+			}
+			List<KeyValue<O>> output = new ArrayList<KeyValue<O>>();
+			for (List<KeyValue<O>> partition : await(reduceTasks)) {
+				output.addAll(partition);
+			}
+			return output;
+		} finally {
+			mapPool.shutdownNow();
+			reducePool.shutdownNow();
+			delete(jobDirectory);
+		}
+	}
+	
+	// Waits for every task, the first failure is thrown again on the waiting thread and the other tasks are cancelled
+	private static <T> List<T> await(List<Future<T>> tasks) throws IOException, InterruptedException {
+		List<T> results = new ArrayList<T>();
+		try {
+			for (Future<T> task : tasks) {
+				results.add(task.get());
+			}
+		} catch (ExecutionException e) {
+			for (Future<T> task : tasks) {
+				task.cancel(true);
+			}
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IOException("MapReduce task failed", e.getCause());
+		}
+		return results;
+	}
+	
+	private static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+	
+	// A map output pair waiting in the buffer of a map task
+	private static class Pending<V> {
+		final int partition;
+		final String key;
+		final V value;
+		
+		Pending(int partition, String key, V value) {
+			this.partition = partition;
+			this.key = key;
+			this.value = value;
+		}
+	}
+	
+	// Orders the buffer by partition and then by key, the sort is stable so equal keys keep the order they were emitted in
+	private static final Comparator<Pending<?>> BUFFER_ORDER = new Comparator<Pending<?>>() {
+		public int compare(Pending<?> one, Pending<?> two) {
+			if (one.partition != two.partition) {
+				return one.partition < two.partition ? -1 : 1;
+			}
+			return one.key.compareTo(two.key);
+		}
+	};
+	
+	// Maps one split and spills its output
+	private class MapTask<I, V, O> implements Callable<List<List<File>>>, Emitter<V> {
+		private MapReduceJob<I, V, O> job;
+		private List<I> split;
+		private int task;
+		private int partitions;
+		private File directory;
+		private List<Pending<V>> buffer = new ArrayList<Pending<V>>();
+		private List<List<File>> spills = new ArrayList<List<File>>(); // Spill files of each partition
+		private int spillCount;
+		
+		MapTask(MapReduceJob<I, V, O> job, List<I> split, int task, int partitions, File directory) {
+			this.job = job;
+			this.split = split;
+			this.task = task;
+			this.partitions = partitions;
+			this.directory = directory;
+			for (int p = 0; p < partitions; p++) {
+				this.spills.add(new ArrayList<File>());
+			}
+		}
+		
+		public List<List<File>> call() throws Exception {
+			for (I input : this.split) {
+				LocalMapReduce.this.mapInputRecords.incrementAndGet();
+				this.job.getMapper().map(input, this);
+			}
+			if (!this.buffer.isEmpty()) {
+				spill();
+			}
+			return this.spills;
+		}
+		
+		public void emit(String key, V value) throws Exception {
+			LocalMapReduce.this.mapOutputRecords.incrementAndGet();
+			this.buffer.add(new Pending<V>(this.job.getPartitioner().partition(key, this.partitions), key, value));
+			if (this.buffer.size() >= LocalMapReduce.this.spillThreshold) {
+				spill();
+			}
+		}
+		
+		// Sorts the buffer and writes one file for each partition that has pairs, running the combiner on each key first
+		private void spill() throws Exception {
+			Collections.sort(this.buffer, BUFFER_ORDER);
+			int from = 0;
+			while (from < this.buffer.size()) {
+				int partition = this.buffer.get(from).partition;
+				int to = from;
+				while (to < this.buffer.size() && this.buffer.get(to).partition == partition) {
+					to++;
+				}
+				List<KeyValue<V>> pairs = combine(this.buffer.subList(from, to));
+				File file = new File(this.directory, "map-" + this.task + "-" + this.spillCount + "-" + partition + ".spill");
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+				try {
+					out.writeInt(pairs.size());
+					for (KeyValue<V> pair : pairs) {
+						out.writeUTF(pair.key);
+						this.job.getCodec().write(out, pair.value);
+					}
+				} finally {
+					out.close();
+				}
+				this.spills.get(partition).add(file);
+				LocalMapReduce.this.spilledRecords.addAndGet(pairs.size());
+				LocalMapReduce.this.spillFiles.incrementAndGet();
+				from = to;
+			}
+			this.buffer.clear();
+			this.spillCount++;
+		}
+		
+		// Output is the pairs of one partition after the combiner, in key order
+		private List<KeyValue<V>> combine(List<Pending<V>> sorted) throws Exception {
+			final List<KeyValue<V>> pairs = new ArrayList<KeyValue<V>>();
+			Reducer<V, V> combiner = this.job.getCombiner();
+			if (combiner == null) {
+				for (Pending<V> pending : sorted) {
+					pairs.add(new KeyValue<V>(pending.key, pending.value));
+				}
+				return pairs;
+			}
+			Emitter<V> collector = new Emitter<V>() {
+				public void emit(String key, V value) {
+					LocalMapReduce.this.combineOutputRecords.incrementAndGet();
+					pairs.add(new KeyValue<V>(key, value));
+				}
+			};
+			int from = 0;
+			while (from < sorted.size()) {
+				String key = sorted.get(from).key;
+				List<V> values = new ArrayList<V>();
+				while (from < sorted.size() && sorted.get(from).key.equals(key)) {
+					values.add(sorted.get(from++).value);
+				}
+				LocalMapReduce.this.combineInputRecords.addAndGet(values.size());
+				combiner.reduce(key, values.iterator(), collector);
+			}
+			Collections.sort(pairs, new Comparator<KeyValue<V>>() { // A combiner may write other keys than the one it was given
+				public int compare(KeyValue<V> one, KeyValue<V> two) {
+					return one.key.compareTo(two.key);
+				}
+			});
+			return pairs;
+		}
+	}
+	
+	// Reads one spill file a pair at a time
+	private static class SpillReader<V> {
+		final int order; // Position of the file among the spill files of the partition
+		private DataInputStream in;
+		private Codec<V> codec;
+		private int left;
+		String key;
+		V value;
+		
+		SpillReader(File file, int order, Codec<V> codec) throws IOException {
+			this.order = order;
+			this.codec = codec;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			this.left = this.in.readInt();
+		}
+		
+		// Moves to the next pair
+		// Output is false and the file is closed once there are no more pairs
+		boolean advance() throws IOException {
+			if (this.left == 0) {
+				this.in.close();
+				return false;
+			}
+			this.left--;
+			this.key = this.in.readUTF();
+			this.value = this.codec.read(this.in);
+			return true;
+		}
+		
+		void close() throws IOException {
+			this.in.close();
+		}
+	}
+	
+	// Merges the spill files of one partition and reduces each group of keys
+	private class ReduceTask<V, O> implements Callable<List<KeyValue<O>>> {
+		private MapReduceJob<?, V, O> job;
+		private List<File> files;
+		private PriorityQueue<SpillReader<V>> merge;
+		
+		ReduceTask(MapReduceJob<?, V, O> job, List<File> files) {
+			this.job = job;
+			this.files = files;
+		}
+		
+		public List<KeyValue<O>> call() throws Exception {
+			final List<KeyValue<O>> output = new ArrayList<KeyValue<O>>();
+			try {
+				// too many files at once would run out of file handles, so each pass merges neighbouring files until few enough are left
+				int factor = LocalMapReduce.this.mergeFactor;
+				while (this.files.size() > factor) {
+					List<File> files = new ArrayList<File>();
+					for (int from = 0; from < this.files.size(); from += factor) {
+						List<File> run = this.files.subList(from, Math.min(from + factor, this.files.size()));
+						files.add(run.size() == 1 ? run.get(0) : merge(run));
+					}
+					this.files = files;
+				}
+				open(this.files);
+				Emitter<O> collector = new Emitter<O>() {
+					public void emit(String key, O value) {
+						LocalMapReduce.this.reduceOutputRecords.incrementAndGet();
+						output.add(new KeyValue<O>(key, value));
+					}
+				};
+				Partitioner partitioner = this.job.getPartitioner();
+				while (!this.merge.isEmpty()) {
+					Group group = new Group(partitioner.group(this.merge.peek().key), partitioner);
+					LocalMapReduce.this.reduceInputGroups.incrementAndGet();
+					this.job.getReducer().reduce(group.key, group, collector);
+					while (group.hasNext()) { // Skip the values the reducer did not read
+						group.next();
+					}
+				}
+			} finally {
+				if (this.merge != null) {
+					for (SpillReader<V> reader : this.merge) {
+						reader.close();
+					}
+				}
+			}
+			return output;
+		}
+		
+		// Opens the files for a merge, equal keys come out in the order of their files, which is the order of the map tasks
+		// Output is the number of pairs in the files
+		private long open(List<File> files) throws IOException {
+			this.merge = new PriorityQueue<SpillReader<V>>(Math.max(1, files.size()), new Comparator<SpillReader<V>>() {
+				public int compare(SpillReader<V> one, SpillReader<V> two) {
+					int compare = one.key.compareTo(two.key);
+					return compare != 0 ? compare : (one.order < two.order ? -1 : (one.order == two.order ? 0 : 1));
+				}
+			});
+			long pairs = 0;
+			for (int f = 0; f < files.size(); f++) {
+				SpillReader<V> reader = new SpillReader<V>(files.get(f), f, this.job.getCodec());
+				pairs += reader.left;
+				if (reader.advance()) {
+					this.merge.add(reader);
+				}
+			}
+			return pairs;
+		}
+		
+		// Merges neighbouring files into one file in the same order they would be read in
+		// Output is the merged file, which takes their place
+		private File merge(List<File> files) throws IOException {
+			long pairs = open(files);
+			File merged = File.createTempFile("merge-", ".spill", files.get(0).getParentFile());
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(merged)));
+			try {
+				out.writeInt((int) pairs);
+				while (!this.merge.isEmpty()) {
+					SpillReader<V> reader = this.merge.poll();
+					out.writeUTF(reader.key);
+					this.job.getCodec().write(out, reader.value);
+					if (reader.advance()) {
+						this.merge.add(reader);
+					}
+				}
+			} finally {
+				out.close();
+			}
+			for (File file : files) { // The merged files are no longer needed
+				file.delete();
+			}
+			LocalMapReduce.this.spilledRecords.addAndGet(pairs);
+			LocalMapReduce.this.spillFiles.incrementAndGet();
+			return merged;
+		}
+		
+		// The values of the neighbouring keys in the same group, read straight from the merge
+		private class Group implements Iterator<V> {
+			final String key;
+			private Partitioner partitioner;
+			
+			Group(String key, Partitioner partitioner) {
+				this.key = key;
+				this.partitioner = partitioner;
+			}
+			
+			public boolean hasNext() {
+				return !ReduceTask.this.merge.isEmpty() && this.partitioner.group(ReduceTask.this.merge.peek().key).equals(this.key);
+			}
+			
+			public V next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				SpillReader<V> reader = ReduceTask.this.merge.poll();
+				V value = reader.value;
+				try {
+					if (reader.advance()) {
+						ReduceTask.this.merge.add(reader);
+					}
+				} catch (IOException e) {
+					throw new IllegalStateException("Cannot read spill file", e);
+				}
+				return value;
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+	
+	public long getMapInputRecords() {
+		return this.mapInputRecords.get();
+	}
+	
+	public long getMapOutputRecords() {
+		return this.mapOutputRecords.get();
+	}
+	
+	public long getSpilledRecords() {
+		return this.spilledRecords.get();
+	}
+	
+	public long getReduceInputGroups() {
+		return this.reduceInputGroups.get();
+	}
+	
+	public long getReduceOutputRecords() {
+		return this.reduceOutputRecords.get();
+	}
+	
+	public String toString() {
+		return "LocalMapReduce mapSlots=" + this.mapSlots + " reduceSlots=" + this.reduceSlots + " mapInput=" + getMapInputRecords() + " mapOutput=" + getMapOutputRecords() + " combineInput=" + this.combineInputRecords.get() + " combineOutput=" + this.combineOutputRecords.get() + " spilled=" + getSpilledRecords() + " spillFiles=" + this.spillFiles.get() + " reduceGroups=" + getReduceInputGroups() + " reduceOutput=" + getReduceOutputRecords();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package backEnd;
+
+import java.util.Arrays;
+
+// The LongList class is a growing list of long values kept in one array, without boxing the values
+class LongList {
+	private long[] values;
+	private int size;
+	
+	LongList() {
+		this(16);
+	}
+	
+	LongList(int capacity) {
+		this.values = new long[Math.max(capacity, 1)];
+	}
+	
+	void add(long value) {
+		if (this.size == this.values.length) {
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		}
+		this.values[this.size++] = value;
+	}
+	
+	// Adds the same value a number of times
+	void addCopies(int count, long value) {
+		if (this.size + count > this.values.length) {
+			this.values = Arrays.copyOf(this.values, Math.max(this.size + count, this.values.length * 2));
+		}
+		Arrays.fill(this.values, this.size, this.size + count, value);
+		this.size += count;
+	}
+	
+	long get(int index) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + this.size);
+		}
+		return this.values[index];
+	}
+	
+	void set(int index, long value) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + this.size);
+		}
+		this.values[index] = value;
+	}
+	
+	int size() {
+		return this.size;
+	}
+	
+	// Drops the values from the given index on
+	void truncate(int size) {
+		this.size = Math.min(this.size, size);
+	}
+	
+	// Output is a copy of the values
+	long[] toArray() {
+		return Arrays.copyOf(this.values, this.size);
+	}
+	
+	// Output is the smallest value between two indices, the end index is not included
+	long min(int from, int to) {
+		long min = Long.MAX_VALUE;
+		for (int i = from; i < to; i++) {
+			min = Math.min(min, this.values[i]);
+		}
+		return min;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,273 @@
+package backEnd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The LshIndex class scores a query against many webpages without comparing the query to every one of them term by term
+// The noun and verb sets of each webpage are kept with their MinHash signatures, which are cut into bands of a few rows
+// Webpages sharing a whole band with the query in either word type are likely to be similar and are compared exactly like SemanticDistance.score
+// The score of every other webpage is worked out from the estimated Jaccard similarity of its sets, and the record is flagged as estimated
+// More bands with fewer rows find more of the similar webpages but compare more of them exactly, a webpage with similarity s is a candidate with probability 1 - (1 - s^rows)^bands
+public class LshIndex {
+	public static final int DEFAULT_BANDS = 16;
+	public static final int DEFAULT_ROWS = 4;
+	private static final long SEED = 0x5eed5eedL;
+	private static final int REPEATS = 5; // Queries timed by main, after one run to warm up
+	
+	private int bands;
+	private int rows;
+	private MinHash minHash;
+	
+	// The webpages in the order they were added
+	private List<String> urls = new ArrayList<String>();
+	private List<FeatureSet> nouns = new ArrayList<FeatureSet>();
+	private List<FeatureSet> verbs = new ArrayList<FeatureSet>();
+	private List<int[]> nounSignatures = new ArrayList<int[]>();
+	private List<int[]> verbSignatures = new ArrayList<int[]>();
+	
+	// The webpages holding each band value, one map per band
+	private List<Map<Long, IntList>> nounBuckets = new ArrayList<Map<Long, IntList>>();
+	private List<Map<Long, IntList>> verbBuckets = new ArrayList<Map<Long, IntList>>();
+	
+	private AtomicLong compared = new AtomicLong();
+	private AtomicLong estimated = new AtomicLong();
+	
+	public LshIndex() {
+		this(DEFAULT_BANDS, DEFAULT_ROWS);
+	}
+	
+	// Input is the number of bands and the number of rows in each band, the signatures are bands * rows long
+	public LshIndex(int bands, int rows) {
+		this.bands = bands;
+		this.rows = rows;
+		this.minHash = new MinHash(bands * rows, SEED);
+		for (int b = 0; b < bands; b++) {
+			this.nounBuckets.add(new HashMap<Long, IntList>());
+			this.verbBuckets.add(new HashMap<Long, IntList>());
+		}
+	}
+	
+	// Adds a webpage to the index, webpages cannot be added while a query is being scored
+	// Input is the webpage URL and its noun and verb sets
+	public void add(String url, FeatureSet nouns, FeatureSet verbs) {
+		int page = this.urls.size();
+		this.urls.add(url);
+		this.nouns.add(nouns);
+		this.verbs.add(verbs);
+		this.nounSignatures.add(index(this.minHash.signature(nouns), page, this.nounBuckets));
+		this.verbSignatures.add(index(this.minHash.signature(verbs), page, this.verbBuckets));
+	}
+	
+	public int size() {
+		return this.urls.size();
+	}
+	
+	// Scores the query against every webpage in the index
+	// Input is the query noun and verb sets
+	// Output is the score of each webpage in the order they were added, exact for the candidates and estimated for the rest
+	public List<ScoreRecord> score(FeatureSet queryNouns, FeatureSet queryVerbs) {
+		int[] nounSignature = this.minHash.signature(queryNouns);
+		int[] verbSignature = this.minHash.signature(queryVerbs);
+		boolean[] candidates = new boolean[this.urls.size()];
+		collect(nounSignature, this.nounBuckets, candidates);
+		collect(verbSignature, this.verbBuckets, candidates);
+		
+		List<ScoreRecord> scores = new ArrayList<ScoreRecord>(this.urls.size());
+		for (int page = 0; page < this.urls.size(); page++) {
+			if (candidates[page]) {
+				this.compared.incrementAndGet();
+				scores.add(new ScoreRecord(this.urls.get(page), SemanticDistance.score(queryNouns, queryVerbs, this.nouns.get(page), this.verbs.get(page))));
+			} else {
+				this.estimated.incrementAndGet();
+				double nounSimilarity = MinHash.jaccard(nounSignature, this.nounSignatures.get(page));
+				double verbSimilarity = MinHash.jaccard(verbSignature, this.verbSignatures.get(page));
+				scores.add(new ScoreRecord(this.urls.get(page), estimate(queryNouns, queryVerbs, this.nouns.get(page), this.verbs.get(page), nounSimilarity, verbSimilarity), true));
+			}
+		}
+		return scores;
+	}
+	
+	// Works out the score of SemanticDistance.score from estimated Jaccard similarities
+	// The number of shared terms follows from the similarity and the number of distinct terms in each set, the empty cases come out the same as the exact score
+	private static double estimate(FeatureSet queryNouns, FeatureSet queryVerbs, FeatureSet nounTwo, FeatureSet verbTwo, double nounSimilarity, double verbSimilarity) {
+		double sharedNouns = nounSimilarity * (queryNouns.distinct() + nounTwo.distinct()) / (1 + nounSimilarity);
+		double sharedVerbs = verbSimilarity * (queryVerbs.distinct() + verbTwo.distinct()) / (1 + verbSimilarity);
+		return Math.max(sharedNouns / Math.min(queryNouns.size(), nounTwo.size()), sharedVerbs / (queryVerbs.distinct() + verbTwo.distinct() - sharedVerbs));
+	}
+	
+	// Adds a webpage to the bucket of each of its band values, empty sets are not added to any bucket
+	private int[] index(int[] signature, int page, List<Map<Long, IntList>> buckets) {
+		if (MinHash.isEmpty(signature)) {
+			return signature;
+		}
+		for (int b = 0; b < this.bands; b++) {
+			Long key = band(signature, b);
+			IntList bucket = buckets.get(b).get(key);
+			if (bucket == null) {
+				bucket = new IntList(4);
+				buckets.get(b).put(key, bucket);
+			}
+			bucket.add(page);
+		}
+		return signature;
+	}
+	
+	// Marks the webpages sharing a band value with the query
+	private void collect(int[] signature, List<Map<Long, IntList>> buckets, boolean[] candidates) {
+		if (MinHash.isEmpty(signature)) {
+			return;
+		}
+		for (int b = 0; b < this.bands; b++) {
+			IntList bucket = buckets.get(b).get(band(signature, b));
+			if (bucket != null) {
+				for (int i = 0; i < bucket.size(); i++) {
+					candidates[bucket.get(i)] = true;
+				}
+			}
+		}
+	}
+	
+	// Output is a hash of the rows of a band
+	private long band(int[] signature, int band) {
+		long hash = 0;
+		for (int r = band * this.rows; r < (band + 1) * this.rows; r++) {
+			hash = MinHash.mix(hash * 0x9e3779b97f4a7c15L + signature[r]);
+		}
+		return hash;
+	}
+	
+	public long getCompared() {
+		return this.compared.get();
+	}
+	
+	public long getEstimated() {
+		return this.estimated.get();
+	}
+	
+	public String toString() {
+		return "LshIndex bands=" + this.bands + " rows=" + this.rows + " pages=" + size() + " compared=" + getCompared() + " estimated=" + getEstimated();
+	}
+	
+	// Measures how many of the best webpages by exact score are also among the best by approximate score
+	// Input is the exact and the approximate scores of the same webpages in the same order, and the number of best webpages to compare
+	// Output is the share of the k best exact webpages found among the k best approximate ones, a missing score (NaN) ranks last
+	public static double recallAtK(List<ScoreRecord> exact, List<ScoreRecord> approximate, int k) {
+		k = Math.min(k, exact.size());
+		if (k == 0) {
+			return 1;
+		}
+		boolean[] best = new boolean[exact.size()];
+		for (int page : top(exact, k)) {
+			best[page] = true;
+		}
+		int found = 0;
+		for (int page : top(approximate, k)) {
+			if (best[page]) {
+				found++;
+			}
+		}
+		return (double) found / k;
+	}
+	
+	// Output is the positions of the k highest scores, equal scores keep their order
+	private static List<Integer> top(final List<ScoreRecord> scores, int k) {
+		List<Integer> pages = new ArrayList<Integer>();
+		for (int page = 0; page < scores.size(); page++) {
+			pages.add(page);
+		}
+		Collections.sort(pages, new Comparator<Integer>() {
+			public int compare(Integer one, Integer two) {
+				return Double.compare(TopKRanker.rank(scores.get(two).score), TopKRanker.rank(scores.get(one).score));
+			}
+		});
+		return pages.subList(0, k);
+	}
+	
+	// Compares the approximate scores against the exact scores of a features txt file
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length % 2 != 0) { // See if the number of command line input is correct
+			System.out.println("java LshIndex <features path, txt or binary> <k for recall@k> [bands rows]...");
+			return;
+		}
+		int k = Integer.parseInt(args[1]);
+		
+		// group the features by URL, the query lines are merged like in SemanticDistance
+		TermDictionary dictionary = new TermDictionary();
+		FeatureSet queryNouns = FeatureSet.EMPTY;
+		FeatureSet queryVerbs = FeatureSet.EMPTY;
+		Map<String, FeatureSet[]> pages = new LinkedHashMap<String, FeatureSet[]>();
+		BinaryRecords.RecordReader in = BinaryRecords.open(args[0]);
+		try {
+			FeatureRecord record;
+			while ((record = in.read()) != null) {
+				FeatureSet set = FeatureSet.of(record.terms, dictionary);
+				if (record.isQuery()) {
+					if (record.type.equals(FeatureRecord.NOUN)) {
+						queryNouns = queryNouns.union(set);
+					}
+					if (record.type.equals(FeatureRecord.VERB)) {
+						queryVerbs = queryVerbs.union(set);
+					}
+				} else {
+					FeatureSet[] sets = pages.get(record.url);
+					if (sets == null) {
+						sets = new FeatureSet[] {FeatureSet.EMPTY, FeatureSet.EMPTY};
+						pages.put(record.url, sets);
+					}
+					sets[record.type.equals(FeatureRecord.NOUN) ? 0 : 1] = set;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		
+		List<ScoreRecord> exact = null;
+		long begin = 0;
+		for (int run = 0; run <= REPEATS; run++) {
+			if (run == 1) {
+				begin = System.nanoTime();
+			}
+			exact = new ArrayList<ScoreRecord>();
+			for (Map.Entry<String, FeatureSet[]> page : pages.entrySet()) {
+				exact.add(new ScoreRecord(page.getKey(), SemanticDistance.score(queryNouns, queryVerbs, page.getValue()[0], page.getValue()[1])));
+			}
+		}
+		System.out.println(pages.size() + " pages, exact query " + (System.nanoTime() - begin) / 1000000.0 / REPEATS + " ms");
+		
+		List<int[]> settings = new ArrayList<int[]>();
+		for (int a = 2; a < args.length; a += 2) {
+			settings.add(new int[] {Integer.parseInt(args[a]), Integer.parseInt(args[a + 1])});
+		}
+		if (settings.isEmpty()) {
+			settings.add(new int[] {DEFAULT_BANDS, DEFAULT_ROWS});
+		}
+		for (int[] setting : settings) {
+			LshIndex index = new LshIndex(setting[0], setting[1]);
+			begin = System.nanoTime();
+			for (Map.Entry<String, FeatureSet[]> page : pages.entrySet()) {
+				index.add(page.getKey(), page.getValue()[0], page.getValue()[1]);
+			}
+			long built = System.nanoTime();
+			List<ScoreRecord> approximate = index.score(queryNouns, queryVerbs);
+			long warm = System.nanoTime();
+			for (int run = 0; run < REPEATS; run++) {
+				approximate = index.score(queryNouns, queryVerbs);
+			}
+			long scored = System.nanoTime();
+			double error = 0;
+			for (int page = 0; page < exact.size(); page++) {
+				if (approximate.get(page).estimated && !Double.isNaN(exact.get(page).score)) {
+					error += Math.abs(approximate.get(page).score - exact.get(page).score);
+				}
+			}
+			System.out.println(index + " build " + (built - begin) / 1000000.0 + " ms, query " + (scored - warm) / 1000000.0 / REPEATS + " ms, recall@" + k + " " + String.format("%.3f", recallAtK(exact, approximate, k)) + ", mean estimate error " + String.format("%.4f", index.getEstimated() == 0 ? 0 : error * (REPEATS + 1) / index.getEstimated()));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package backEnd;
+
+// The MapReduceJob class describes a job in the shape of a Hadoop job: a mapper, an optional combiner, a partitioner and a reducer
+// The values between the map and the reduce side are written to spill files with the codec, so the same job classes can later run where the two sides are on different machines
+// I is the type of the input records, V the type of the map output values and O the type of the reduce output values
+public class MapReduceJob<I, V, O> {
+	private String name;
+	private Mapper<I, V> mapper;
+	private Reducer<V, V> combiner;
+	private Reducer<V, O> reducer;
+	private Codec<V> codec;
+	private Partitioner partitioner = Partitioner.BY_KEY;
+	private int reduceTasks; // 0 gives one reduce task per reduce slot
+	
+	public MapReduceJob(String name, Mapper<I, V> mapper, Reducer<V, O> reducer, Codec<V> codec) {
+		this.name = name;
+		this.mapper = mapper;
+		this.reducer = reducer;
+		this.codec = codec;
+	}
+	
+	// Sets a reducer that runs on each spill of a map task to make it smaller, it may run any number of times on the same key so it has to be associative
+	public void setCombiner(Reducer<V, V> combiner) {
+		this.combiner = combiner;
+	}
+	
+	public void setPartitioner(Partitioner partitioner) {
+		this.partitioner = partitioner;
+	}
+	
+	// Sets the number of partitions of the map output, each partition is reduced by one reduce task
+	public void setReduceTasks(int reduceTasks) {
+		this.reduceTasks = reduceTasks;
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	public Mapper<I, V> getMapper() {
+		return this.mapper;
+	}
+	
+	public Reducer<V, V> getCombiner() {
+		return this.combiner;
+	}
+	
+	public Reducer<V, O> getReducer() {
+		return this.reducer;
+	}
+	
+	public Codec<V> getCodec() {
+		return this.codec;
+	}
+	
+	public Partitioner getPartitioner() {
+		return this.partitioner;
+	}
+	
+	public int getReduceTasks() {
+		return this.reduceTasks;
+	}
+}
\ No newline at end of file
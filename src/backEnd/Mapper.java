@@ -0,0 +1,8 @@
+package backEnd;
+
+// The Mapper interface turns one input record into any number of key-value pairs, like the map function of a Hadoop job
+// One mapper is used by all map slots at the same time, so it has to be thread-safe
+public interface Mapper<I, V> {
+	// Input is the record and the emitter taking the pairs
+	void map(I input, Emitter<V> out) throws Exception;
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package backEnd;
+
+import java.util.Arrays;
+
+// The MinHash class makes short signatures of feature sets, the share of positions where two signatures agree estimates the Jaccard similarity of the sets
+// Each term is hashed once and falls into one of the positions, which keeps the smallest hash it sees (one permutation hashing)
+// A position no term fell into borrows the value of the next filled position to its right, so small sets still give signatures of full length
+// The error of the estimate shrinks with the square root of the signature length
+public class MinHash {
+	private static final int EMPTY = -1; // Hash values are never negative
+	
+	private int length;
+	private long seed;
+	
+	// Input is the signature length and the seed of the hash function, signatures are only comparable if both are the same
+	public MinHash(int length, long seed) {
+		if (length <= 0) {
+			throw new IllegalArgumentException("Signature length must be positive: " + length);
+		}
+		this.length = length;
+		this.seed = seed;
+	}
+	
+	public int length() {
+		return this.length;
+	}
+	
+	// Makes the signature of a set
+	// Input is the set of term IDs
+	// Output is the signature, all positions are EMPTY for the empty set
+	public int[] signature(FeatureSet set) {
+		int[] signature = new int[this.length];
+		Arrays.fill(signature, EMPTY);
+		for (int i = 0; i < set.distinct(); i++) {
+			long hash = mix(set.get(i) ^ this.seed);
+			int position = (int) (((hash >>> 32) * this.length) >>> 32);
+			int value = (int) hash & Integer.MAX_VALUE;
+			if (signature[position] == EMPTY || value < signature[position]) {
+				signature[position] = value;
+			}
+		}
+		if (set.distinct() > 0) {
+			densify(signature);
+		}
+		return signature;
+	}
+	
+	// Fills the empty positions from the next filled position to the right, wrapping around at the end
+	// The distance is mixed into the borrowed value, so two sets only agree there if they borrowed the same value from the same distance
+	private static void densify(int[] signature) {
+		int[] filled = signature.clone();
+		for (int p = 0; p < signature.length; p++) {
+			if (filled[p] == EMPTY) {
+				int distance = 1;
+				while (filled[(p + distance) % signature.length] == EMPTY) {
+					distance++;
+				}
+				signature[p] = (int) mix(((long) filled[(p + distance) % signature.length] << 32) | distance) & Integer.MAX_VALUE;
+			}
+		}
+	}
+	
+	// Output is true if the signature was made from the empty set
+	public static boolean isEmpty(int[] signature) {
+		return signature[0] == EMPTY;
+	}
+	
+	// Estimates the Jaccard similarity of two sets from their signatures
+	// Output is the share of positions where the signatures agree, 0 if either set is empty
+	public static double jaccard(int[] one, int[] two) {
+		if (isEmpty(one) || isEmpty(two)) {
+			return 0;
+		}
+		int same = 0;
+		for (int p = 0; p < one.length; p++) {
+			if (one[p] == two[p]) {
+				same++;
+			}
+		}
+		return (double) same / one.length;
+	}
+	
+	// Scrambles the bits of a value (the finalizer of MurmurHash3)
+	static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb93fe53a87c5L;
+		value ^= value >>> 33;
+		return value;
+	}
+}
\ No newline at end of file
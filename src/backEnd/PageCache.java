@@ -0,0 +1,299 @@
+package backEnd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The PageCache class keeps the raw HTML and the extracted sentences of each fetched URL on disk
+// Each URL is stored under the SHA-1 hash of the URL as three files: the HTML, the sentences and the HTTP validators
+// When the cache grows over its size limit the least recently used URLs are removed
+public class PageCache {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String HTML = ".html";
+	private static final String TEXT = ".txt";
+	private static final String META = ".properties";
+	
+	private File directory;
+	private long maxBytes;
+	private long ttl; // Milliseconds a cached page is used without asking the server again
+	
+	// Size on disk of each cached URL by key, the eldest entry is the least recently used
+	private LinkedHashMap<String, Long> index;
+	private long totalBytes;
+	
+	private AtomicLong hits = new AtomicLong(); // Served from disk without going to the network
+	private AtomicLong revalidations = new AtomicLong(); // The server confirmed the cached copy is still current
+	private AtomicLong misses = new AtomicLong(); // Had to be downloaded and extracted
+	private AtomicLong evictions = new AtomicLong();
+	
+	public PageCache(File directory, long maxBytes, long ttl) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.ttl = ttl;
+		this.index = new LinkedHashMap<String, Long>(16, 0.75f, true);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create cache directory " + directory);
+		}
+		loadIndex();
+	}
+	
+	// A cached URL
+	public class Entry {
+		public final String url;
+		public final String etag; // ETag header of the cached copy, null if the server sent none
+		public final String lastModified; // Last-Modified header of the cached copy, null if the server sent none
+		public final String charset;
+		public final long fetched; // When the cached copy was downloaded or last confirmed by the server
+		private final String key;
+		
+		private Entry(String key, Properties meta) {
+			this.key = key;
+			this.url = meta.getProperty("url");
+			this.etag = meta.getProperty("etag");
+			this.lastModified = meta.getProperty("lastModified");
+			this.charset = meta.getProperty("charset");
+			this.fetched = Long.parseLong(meta.getProperty("fetched"));
+		}
+		
+		// True if the entry can be used without asking the server again
+		public boolean isFresh() {
+			return System.currentTimeMillis() - this.fetched < PageCache.this.ttl;
+		}
+		
+		public byte[] html() throws IOException {
+			return readBytes(file(this.key, HTML));
+		}
+		
+		public List<String> sentences() throws IOException {
+			return readLines(file(this.key, TEXT));
+		}
+	}
+	
+	// Looks up a URL
+	// Input is the URL
+	// Output is the cached entry, or null if the URL is not cached
+	public Entry get(String url) {
+		String key = key(url);
+		synchronized (this) {
+			if (this.index.get(key) == null) { // Also moves the URL to the most recently used end
+				return null;
+			}
+		}
+		try {
+			Properties meta = StoreFiles.readMeta(file(key, META));
+			if (!url.equals(meta.getProperty("url"))) { // Different URL with the same hash
+				return null;
+			}
+			file(key, META).setLastModified(System.currentTimeMillis()); // Keeps the LRU order across restarts
+			return new Entry(key, meta);
+		} catch (IOException e) {
+			return null; // Removed by another process, treat as not cached
+		}
+	}
+	
+	// Saves a downloaded page
+	// Input is the URL, its HTML and the charset of the HTML, the HTTP validators (either can be null) and the extracted sentences
+	public void put(String url, byte[] html, String charset, String etag, String lastModified, List<String> sentences) throws IOException {
+		String key = key(url);
+		Properties meta = new Properties();
+		meta.setProperty("url", url);
+		meta.setProperty("charset", charset);
+		meta.setProperty("fetched", Long.toString(System.currentTimeMillis()));
+		if (etag != null) {
+			meta.setProperty("etag", etag);
+		}
+		if (lastModified != null) {
+			meta.setProperty("lastModified", lastModified);
+		}
+		writeBytes(file(key, HTML), html);
+		writeLines(file(key, TEXT), sentences);
+		StoreFiles.writeMeta(file(key, META), meta); // Written last, an entry only counts once this file exists
+		added(key, size(key));
+	}
+	
+	// Records that the server confirmed the cached copy is still current
+	public void revalidated(Entry entry) throws IOException {
+		File metaFile = file(entry.key, META);
+		Properties meta = StoreFiles.readMeta(metaFile);
+		meta.setProperty("fetched", Long.toString(System.currentTimeMillis()));
+		StoreFiles.writeMeta(metaFile, meta);
+		this.revalidations.incrementAndGet();
+	}
+	
+	public void hit() {
+		this.hits.incrementAndGet();
+	}
+	
+	public void miss() {
+		this.misses.incrementAndGet();
+	}
+	
+	public long getHits() {
+		return this.hits.get();
+	}
+	
+	public long getRevalidations() {
+		return this.revalidations.get();
+	}
+	
+	public long getMisses() {
+		return this.misses.get();
+	}
+	
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+	
+	public synchronized long getTotalBytes() {
+		return this.totalBytes;
+	}
+	
+	public String toString() {
+		return "PageCache hits=" + getHits() + " revalidations=" + getRevalidations() + " misses=" + getMisses() + " evictions=" + getEvictions() + " bytes=" + getTotalBytes();
+	}
+	
+	// Adds an entry to the index and removes the least recently used ones while the cache is too big
+	private void added(String key, long size) {
+		List<String> evicted = new ArrayList<String>();
+		synchronized (this) {
+			Long previous = this.index.put(key, size);
+			if (previous != null) {
+				this.totalBytes -= previous;
+			}
+			this.totalBytes += size;
+			Iterator<Map.Entry<String, Long>> eldest = this.index.entrySet().iterator();
+			while (this.totalBytes > this.maxBytes && eldest.hasNext()) {
+				Map.Entry<String, Long> entry = eldest.next();
+				if (entry.getKey().equals(key)) { // Never evict the page that was just added
+					continue;
+				}
+				this.totalBytes -= entry.getValue();
+				evicted.add(entry.getKey());
+				eldest.remove();
+			}
+		}
+		for (String old : evicted) {
+			file(old, META).delete();
+			file(old, HTML).delete();
+			file(old, TEXT).delete();
+			this.evictions.incrementAndGet();
+		}
+	}
+	
+	// Rebuilds the index from the files, least recently used first
+	private void loadIndex() {
+		File[] metas = this.directory.listFiles();
+		if (metas == null) {
+			return;
+		}
+		Arrays.sort(metas, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File meta : metas) {
+			String name = meta.getName();
+			if (name.endsWith(META)) {
+				String key = name.substring(0, name.length() - META.length());
+				this.index.put(key, size(key));
+				this.totalBytes += this.index.get(key);
+			}
+		}
+	}
+	
+	private long size(String key) {
+		return file(key, HTML).length() + file(key, TEXT).length() + file(key, META).length();
+	}
+	
+	private File file(String key, String extension) {
+		return new File(this.directory, key + extension);
+	}
+	
+	// The SHA-1 hash of the URL in hexadecimal
+	private static String key(String url) {
+		return StoreFiles.sha1(url);
+	}
+	
+	private static byte[] readBytes(File file) throws IOException {
+		byte[] data = new byte[(int) file.length()];
+		InputStream is = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < data.length) {
+				int r = is.read(data, read, data.length - read);
+				if (r < 0) {
+					throw new IOException("Truncated cache file " + file);
+				}
+				read += r;
+			}
+		} finally {
+			is.close();
+		}
+		return data;
+	}
+	
+	private static void writeBytes(File file, byte[] data) throws IOException {
+		File temp = StoreFiles.temp(file);
+		try {
+			OutputStream os = new FileOutputStream(temp);
+			try {
+				os.write(data);
+			} finally {
+				os.close();
+			}
+			StoreFiles.replace(temp, file);
+		} finally {
+			temp.delete(); // Already moved unless the write failed, such as on a full disk
+		}
+	}
+	
+	// Sentences never contain a newline character, so each one is stored on its own line
+	private static List<String> readLines(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			br.close();
+		}
+		return lines;
+	}
+	
+	private static void writeLines(File file, List<String> lines) throws IOException {
+		File temp = StoreFiles.temp(file);
+		try {
+			BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), UTF8));
+			try {
+				for (String line : lines) {
+					bw.write(line);
+					bw.write("\n");
+				}
+			} finally {
+				bw.close();
+			}
+			StoreFiles.replace(temp, file);
+		} finally {
+			temp.delete(); // Already moved unless the write failed, such as on a full disk
+		}
+	}
+}
\ No newline at end of file
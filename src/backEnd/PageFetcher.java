@@ -0,0 +1,337 @@
+package backEnd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import de.l3s.boilerpipe.BoilerpipeProcessingException;
+import de.l3s.boilerpipe.extractors.ArticleExtractor;
+import de.l3s.boilerpipe.sax.HTMLDocument;
+
+// The PageFetcher class downloads and extracts the text of many webpages at the same time
+// A URL that cannot be fetched is marked as failed instead of stopping the whole batch
+public class PageFetcher {
+	public static final int DEFAULT_MAX_PER_HOST = 2; // The number of requests sent to the same host at once
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000; // Milliseconds
+	public static final int DEFAULT_READ_TIMEOUT = 20000; // Milliseconds
+	
+	private static final Pattern CHARSET = Pattern.compile("charset=([^; ]+)$");
+	private static final String DEFAULT_CHARSET = "Cp1252"; // Same default as the Boilerpipe fetcher
+	
+	private ExecutorService executor;
+	private int maxPerHost;
+	private int connectTimeout;
+	private int readTimeout;
+	
+	// One permit pool per host so a slow site cannot take all the threads of the executor
+	// The URLs of submitAll wait in the queue of their host until a permit is free, so they never hold a thread of the executor while waiting
+	private ConcurrentMap<String, Host> hosts;
+	
+	private PageCache cache; // Optional, repeat URLs skip the download and the extraction when set
+	
+	public PageFetcher(ExecutorService executor) {
+		this(executor, DEFAULT_MAX_PER_HOST, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+	}
+	
+	public PageFetcher(ExecutorService executor, int maxPerHost, int connectTimeout, int readTimeout) {
+		this.executor = executor;
+		this.maxPerHost = maxPerHost;
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.hosts = new ConcurrentHashMap<String, Host>();
+	}
+	
+	public void setCache(PageCache cache) {
+		this.cache = cache;
+	}
+	
+	// Starts fetching every URL in the list
+	// Input is a list structure containing URLs, the line holding the original query is passed through unchanged
+	// Output is a list of pending records in the same order as the input
+	public List<Future<PageRecord>> submitAll(List<String> urls) {
+		List<Future<PageRecord>> pending = new ArrayList<Future<PageRecord>>();
+		for (final String url : urls) {
+			if (url.contains("QUERY")) { // If the current line is the original query then we just copy it to the result
+				pending.add(this.executor.submit(new Callable<PageRecord>() {
+					public PageRecord call() {
+						return PageRecord.parse(url);
+					}
+				}));
+				continue;
+			}
+			final Host host;
+			try {
+				host = host(new URL(url).getHost());
+			} catch (MalformedURLException e) {
+				pending.add(this.executor.submit(new Callable<PageRecord>() {
+					public PageRecord call() throws InterruptedException {
+						return fetch(url); // Fails without going to the network
+					}
+				}));
+				continue;
+			}
+			FetchTask task = new FetchTask(url, new Callable<PageRecord>() {
+				public PageRecord call() throws InterruptedException {
+					return fetch(url, host); // The permit was taken when the task was handed to the executor
+				}
+			});
+			host.waiting.add(task);
+			host.drain();
+			pending.add(task);
+		}
+		return pending;
+	}
+	
+	// Fetches every URL in the list and waits for all of them
+	// Input is a list structure containing URLs
+	// Output is the list of records in the same order as the input
+	public List<PageRecord> fetchAll(List<String> urls) throws InterruptedException {
+		List<PageRecord> pages = new ArrayList<PageRecord>();
+		for (Future<PageRecord> page : submitAll(urls)) {
+			pages.add(get(page));
+		}
+		return pages;
+	}
+	
+	// Waits for a pending record
+	public static PageRecord get(Future<PageRecord> page) throws InterruptedException {
+		try {
+			return page.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause()); // fetch never throws, so this is a programming error
+		}
+	}
+	
+	// Downloads one webpage and extracts its sentences, waiting on the calling thread for a permit of the host
+	// Input is the webpage URL
+	// Output is the record holding the sentences, or a failed record if anything went wrong
+	public PageRecord fetch(String url) throws InterruptedException {
+		return fetch(url, null);
+	}
+	
+	// Input is the webpage URL and the host whose permit the caller already took, or null to wait for a permit on the calling thread
+	private PageRecord fetch(String url, Host permitted) throws InterruptedException {
+		Host held = permitted; // The host whose permit has to be given back
+		try {
+			PageCache.Entry cached = null;
+			if (this.cache != null) {
+				cached = this.cache.get(url);
+				if (cached != null && cached.isFresh()) {
+					List<String> sentences = cachedSentences(cached);
+					if (sentences != null) {
+						this.cache.hit();
+						return new PageRecord(url, sentences);
+					}
+					cached = null; // Evicted in the meantime, downloaded again
+				}
+			}
+			
+			URL target = new URL(url);
+			if (held == null) {
+				Host host = host(target.getHost());
+				host.permits.acquire();
+				held = host;
+			}
+			URLConnection conn;
+			byte[] data;
+			try {
+				conn = connect(target, cached);
+				if (cached != null && conn instanceof HttpURLConnection && ((HttpURLConnection) conn).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					List<String> sentences = cachedSentences(cached);
+					if (sentences != null) { // The cached copy is still current, no need to download or extract it again
+						try {
+							this.cache.revalidated(cached);
+						} catch (IOException e) {
+							System.err.println("Could not update the cache for " + url + ": " + e); // The page is simply revalidated again next time
+						}
+						return new PageRecord(url, sentences);
+					}
+					conn = connect(target, null); // Evicted in the meantime, downloaded again without the validators
+				}
+				data = readAll(conn);
+			} finally {
+				held.release(); // The extraction does not need the connection
+				held = null;
+			}
+			
+			Charset cs = charset(conn.getContentType());
+			List<String> sentences = extract(new HTMLDocument(data, cs));
+			if (this.cache != null) {
+				this.cache.miss();
+				try {
+					this.cache.put(url, data, cs.name(), conn.getHeaderField("ETag"), conn.getHeaderField("Last-Modified"), sentences);
+				} catch (IOException e) { // Such as a full disk, the downloaded page is still good
+					System.err.println("Could not cache " + url + ": " + e);
+				}
+			}
+			return new PageRecord(url, sentences);
+		} catch (IOException e) {
+			return PageRecord.failed(url, e.toString());
+		} catch (BoilerpipeProcessingException e) {
+			return PageRecord.failed(url, e.toString());
+		} catch (RuntimeException e) { // The HTML parser can throw on badly broken pages
+			return PageRecord.failed(url, e.toString());
+		} finally {
+			if (held != null) { // Answered from the cache or failed before the download
+				held.release();
+			}
+		}
+	}
+	
+	// Output is the sentences of a cached page, or null if its files were removed since the lookup
+	private static List<String> cachedSentences(PageCache.Entry cached) {
+		try {
+			return cached.sentences();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	// Extract text from the HTML using the Boilerpipe library and split it into sentences
+	static List<String> extract(HTMLDocument html) throws BoilerpipeProcessingException {
+		return WebpageToTxt.splitSentences(ArticleExtractor.INSTANCE.getText(html.toInputSource()));
+	}
+	
+	// Opens a connection with the timeouts applied, asking the server whether the cached copy (if any) is still current
+	private URLConnection connect(URL url, PageCache.Entry cached) throws IOException {
+		URLConnection conn = url.openConnection();
+		conn.setConnectTimeout(this.connectTimeout);
+		conn.setReadTimeout(this.readTimeout);
+		if (cached != null) {
+			if (cached.etag != null) {
+				conn.setRequestProperty("If-None-Match", cached.etag);
+			}
+			if (cached.lastModified != null) {
+				conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+			}
+		}
+		if (conn instanceof HttpURLConnection) {
+			HttpURLConnection http = (HttpURLConnection) conn;
+			int status = http.getResponseCode();
+			if (status >= 400) {
+				try {
+					InputStream error = http.getErrorStream();
+					if (error != null) {
+						error.close();
+					}
+				} finally {
+					http.disconnect(); // Otherwise the kept-alive socket of every failed URL stays open
+				}
+				throw new IOException("HTTP " + status + " for " + url);
+			}
+		}
+		return conn;
+	}
+	
+	// Reads the whole response body
+	static byte[] readAll(URLConnection conn) throws IOException {
+		InputStream in = conn.getInputStream();
+		try {
+			if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+				in = new GZIPInputStream(in);
+			}
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte[] buf = new byte[4096];
+			int r;
+			while ((r = in.read(buf)) != -1) {
+				bos.write(buf, 0, r);
+			}
+			return bos.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+	
+	// Finds the charset in the Content-Type header
+	static Charset charset(String contentType) {
+		if (contentType != null) {
+			Matcher m = CHARSET.matcher(contentType);
+			if (m.find()) {
+				try {
+					return Charset.forName(m.group(1));
+				} catch (IllegalArgumentException e) {
+					// keep default
+				}
+			}
+		}
+		return Charset.forName(DEFAULT_CHARSET);
+	}
+	
+	private Host host(String name) {
+		Host host = this.hosts.get(name);
+		if (host == null) {
+			Host created = new Host();
+			host = this.hosts.putIfAbsent(name, created);
+			if (host == null) {
+				host = created;
+			}
+		}
+		return host;
+	}
+	
+	// The permits of a host and the submitted URLs waiting for one
+	private class Host {
+		final Semaphore permits = new Semaphore(PageFetcher.this.maxPerHost);
+		final Queue<FetchTask> waiting = new ConcurrentLinkedQueue<FetchTask>();
+		
+		// Gives back a permit and hands the next waiting URL to the executor
+		void release() {
+			this.permits.release();
+			drain();
+		}
+		
+		// Hands waiting URLs to the executor while the host has free permits
+		// Called after adding a URL and after each download, so a URL added while the last permit is being released is not left waiting
+		void drain() {
+			while (!this.waiting.isEmpty() && this.permits.tryAcquire()) {
+				FetchTask task = this.waiting.poll();
+				if (task == null) { // Taken by another thread in the meantime
+					this.permits.release();
+					return;
+				}
+				try {
+					PageFetcher.this.executor.execute(task);
+				} catch (RejectedExecutionException e) { // The executor was shut down, such as after a failed run
+					this.permits.release();
+					task.reject(e);
+				}
+			}
+		}
+	}
+	
+	// A submitted URL waiting in the queue of its host
+	private static class FetchTask extends FutureTask<PageRecord> {
+		private final String url;
+		
+		FetchTask(String url, Callable<PageRecord> fetch) {
+			super(fetch);
+			this.url = url;
+		}
+		
+		// Fails the URL without fetching it, so whoever waits on it gets a failed record
+		void reject(RejectedExecutionException e) {
+			set(PageRecord.failed(this.url, e.toString()));
+		}
+	}
+}
\ No newline at end of file
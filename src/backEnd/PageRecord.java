@@ -0,0 +1,58 @@
+package backEnd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// The PageRecord class holds the sentences extracted from one webpage, or the query itself when the URL is "QUERY"
+public class PageRecord {
+	private static final String SPLIT_SYMBOL = "`"; // Default split token
+	
+	public final String url;
+	public final List<String> sentences;
+	public final String error; // Why the webpage could not be fetched, null if it was fetched
+	
+	public PageRecord(String url, List<String> sentences) {
+		this(url, sentences, null);
+	}
+	
+	private PageRecord(String url, List<String> sentences, String error) {
+		this.url = url;
+		this.sentences = Collections.unmodifiableList(sentences);
+		this.error = error;
+	}
+	
+	// Marks a URL that could not be fetched or extracted
+	// Input is the URL and the reason of the failure
+	// Output is a record without sentences
+	public static PageRecord failed(String url, String error) {
+		return new PageRecord(url, new ArrayList<String>(), error);
+	}
+	
+	// Converts a line in the webpages txt format back into a record
+	// Input is a line where the URL and the sentences are separated by the default split token
+	// Output is the corresponding record
+	public static PageRecord parse(String line) {
+		List<String> fields = new ArrayList<String>(Arrays.asList(line.split(SPLIT_SYMBOL)));
+		String url = fields.remove(0); // The URL is always at the first position in a line
+		return new PageRecord(url, fields);
+	}
+	
+	// Formats the record as a line of the webpages txt file
+	public String toLine() {
+		StringBuilder line = new StringBuilder(this.url);
+		for (String sentence : this.sentences) {
+			line.append(SPLIT_SYMBOL).append(sentence);
+		}
+		return line.toString();
+	}
+	
+	public boolean isFailed() {
+		return this.error != null;
+	}
+	
+	public boolean isQuery() {
+		return this.url.contains("QUERY");
+	}
+}
\ No newline at end of file
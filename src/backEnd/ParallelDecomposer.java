@@ -0,0 +1,39 @@
+package backEnd;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The ParallelDecomposer class decomposes many lists of keywords at the same time, each list is a task of its own on the executor
+// All tasks share one ExpansionCache and through it one read-only synset graph, while every task gets its own Decomposer for the chain it grows
+// A chain only depends on its own keywords, so the result of each list is the same as Decomposer and the results are given back in the input order
+public class ParallelDecomposer extends Decomposer {
+	private ExecutorService executor;
+	private AtomicLong overflows = new AtomicLong(); // Overflows counted by the tasks
+	
+	// Input is the cache shared by all tasks and the executor running them, such as a ForkJoinPool
+	public ParallelDecomposer(ExpansionCache expansions, ExecutorService executor) {
+		super(expansions);
+		this.executor = executor;
+	}
+	
+	// Starts decomposing a single list of keywords on the executor, a task that only starts after the deadline returns the keywords flagged as truncated
+	// Output is the pending result
+	public Future<FeatureRecord> submit(final FeatureRecord record, final long deadline) {
+		final Decomposer decomposer = copy(); // Options set after this call do not change the task
+		return this.executor.submit(new Callable<FeatureRecord>() {
+			public FeatureRecord call() {
+				try {
+					return decomposer.decompose(record, deadline);
+				} finally {
+					ParallelDecomposer.this.overflows.addAndGet(decomposer.getOverflows());
+				}
+			}
+		});
+	}
+	
+	public long getOverflows() {
+		return super.getOverflows() + this.overflows.get();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package backEnd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+// The ParallelParser class parses many webpages at the same time, and tags the sentences of a long webpage at the same time
+// All threads share one MaxentTagger since its model is read-only once loaded, while every webpage gets its own Parser for the intermediate results
+// Tagging is the only part done in parallel, the grouping of words still sees the sentences in their original order so the result is the same as Parser
+public class ParallelParser extends Parser {
+	private static final int SENTENCES_PER_TASK = 16; // Long webpages are tagged in slices of this many sentences
+	
+	private ForkJoinPool pool;
+	
+	public ParallelParser(MaxentTagger tagger, ForkJoinPool pool) {
+		super(tagger);
+		this.pool = pool;
+	}
+	
+	// Parses many webpages at the same time
+	// Input is the list of records holding the URL and the sentences of each webpage
+	// Output is the result of parsePage for each webpage in the same order
+	public List<List<FeatureRecord>> parsePages(List<PageRecord> pages) {
+		List<DocumentTask> tasks = new ArrayList<DocumentTask>();
+		for (PageRecord page : pages) {
+			DocumentTask task = new DocumentTask(page);
+			this.pool.execute(task);
+			tasks.add(task);
+		}
+		List<List<FeatureRecord>> results = new ArrayList<List<FeatureRecord>>();
+		for (DocumentTask task : tasks) {
+			results.add(task.join());
+		}
+		return results;
+	}
+	
+	// Parses the sentences of a single webpage with the tagging spread over the pool
+	public List<FeatureRecord> parsePage(PageRecord page) {
+		return this.pool.invoke(new DocumentTask(page));
+	}
+	
+	// Starts parsing a single webpage on the pool, so the caller can hand over the next webpage while this one is tagged
+	// Output is the pending result
+	public Future<List<FeatureRecord>> submit(PageRecord page) {
+		return this.pool.submit(new DocumentTask(page));
+	}
+	
+	// Tags the sentences of one webpage and then groups its words on a parser of its own
+	private class DocumentTask extends RecursiveTask<List<FeatureRecord>> {
+		private static final long serialVersionUID = 1L; // Fork/join tasks are serializable, the tasks are never serialized
+		
+		private PageRecord page;
+		
+		DocumentTask(PageRecord page) {
+			this.page = page;
+		}
+		
+		protected List<FeatureRecord> compute() {
+			String[] tagged = new String[this.page.sentences.size()];
+			new TagTask(this.page.sentences, tagged, 0, tagged.length).invoke();
+			Parser parser = new Parser(ParallelParser.this.tagger);
+			parser.setStopWords(ParallelParser.this.stopWords);
+			parser.setLemmaCache(ParallelParser.this.lemmaCache);
+			return parser.parseTagged(this.page.url, Arrays.asList(tagged));
+		}
+	}
+	
+	// Tags the sentences between two positions, halving the range until it is small enough
+	private class TagTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private List<String> sentences;
+		private String[] tagged;
+		private int from;
+		private int to;
+		
+		TagTask(List<String> sentences, String[] tagged, int from, int to) {
+			this.sentences = sentences;
+			this.tagged = tagged;
+			this.from = from;
+			this.to = to;
+		}
+		
+		protected void compute() {
+			if (this.to - this.from <= SENTENCES_PER_TASK) {
+				for (int i = this.from; i < this.to; i++) {
+					this.tagged[i] = ParallelParser.this.tagger.tagString(this.sentences.get(i));
+				}
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new TagTask(this.sentences, this.tagged, this.from, middle), new TagTask(this.sentences, this.tagged, middle, this.to));
+			}
+		}
+	}
+}
\ No newline at end of file
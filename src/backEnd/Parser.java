@@ -2,6 +2,11 @@ package backEnd;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import edu.stanford.nlp.process.Morphology;
 import edu.stanford.nlp.tagger.maxent.MaxentTagger;
@@ -9,14 +14,13 @@ import edu.stanford.nlp.tagger.maxent.MaxentTagger;
 // The input to this class is a list with each line containing the list of sentences in the corresponding website URL
 // The output is same as the input except the words for each URL are separated into two groups, noun and verb
 public class Parser {
-	// This is the list of stop words that are ignored in the computation
-	private static final String IGNORE_LIST = "i me my myself we us our ours ourselves you your yours yourself yourselves he him his himself she her hers herself it its itself they them their theirs themselves what which who whom this that these those am is are was were be been being have has had having do does did doing will would shall should can could may might must ought im youre hes shes its were theyre ive youve weve theyve id youd hed shed wed theyd ill youll hell shell well theyll isnt arent wasnt werent hasnt havent hadnt doesnt dont didnt wont wouldnt shant shouldnt cant cannot couldnt mustnt lets thats whos whats heres theres whens wheres whys hows darent neednt oughtnt mightnt a an the and but if or because as until while of at by for with about against between into through during before after above below to from up down in out on off over under again further then once here there when where why how all any both each few more most other some such no nor not only own same so than too very every least less many now ever never also just put whether since another however one two three four five first second new old high long";
-	
 	private static final String NOUN = "NN";
 	private static final String VERB = "VB";
 	
 	private static final String SPLIT_SYMBOL = "`"; // Default split token
 	
+	private static final int PAGES_PER_BATCH = 64; // Webpages read from a file before they are parsed, a ParallelParser parses a batch at the same time
+	
 	// this path needs to point to the model file used for the POS tagger
 	public static final String TAGGER_MODEL_PATH = "stanford-postagger-2013-06-20/models/english-left3words-distsim.tagger";
 	
@@ -24,97 +28,244 @@ public class Parser {
 	public List<List<String>> nounFeature;
 	public List<List<String>> verbFeature;
 	
-	private List<String> keyWords;
+	private Set<String> keyWords; // In insertion order
 	private int longestChainIndex;
 	
-	private MaxentTagger tagger;
+	protected StopWords stopWords; // Words that are ignored in the computation
+	protected LemmaCache lemmaCache; // Stems of the tokens seen so far, shared with the other parsers
+	
+	protected MaxentTagger tagger;
+	private Morphology morphology; // The stemmer keeps state while it works, so each parser has its own
 	
-	// Parser object for storing intermediate results
+	// Parser object for storing intermediate results, the tagger model is only loaded by the first parser in the process
 	public Parser() throws IOException {
+		this(TaggerRegistry.get(TAGGER_MODEL_PATH));
+	}
+	
+	// Parser object using an already loaded tagger, a tagger can be shared by parsers on different threads
+	public Parser(MaxentTagger tagger) {
 		this.nounFeature = new ArrayList<List<String>>(); // This stores the noun features
 		this.verbFeature = new ArrayList<List<String>>(); // This stores the verb features
-		this.keyWords = new ArrayList<String>(); // All keywords noun + verbs are stored here
+		this.keyWords = new LinkedHashSet<String>(); // All keywords noun + verbs are stored here
 		this.longestChainIndex = 0; // The index number of the longest chain represents the main topic
-		this.tagger = new MaxentTagger(TAGGER_MODEL_PATH);
+		this.stopWords = StopWords.DEFAULT;
+		this.lemmaCache = LemmaCache.shared();
+		this.tagger = tagger;
+		this.morphology = new Morphology();
 	}
 	
 	// The actual parsing is done here
 	public String beginParsing(String inputPath) throws IOException {
 		String output = new String();
 		if (!inputPath.isEmpty()) { // Only proceed if there is input
-			String url, input;
-			List<String> inputList, sentences;
-			if (inputPath.contains(".txt")) {
-				// If the input is a txt file path then store each line of the file into the inputList list structure
-				inputList = readTxt(inputPath);
-			} else {
-				// If the input is a string then break it into lines according to the newline character and store each line into the inputList list structure
-				inputList = Arrays.asList(inputPath.split("\n"));
-			}
-			Iterator<String> inputListIterator = inputList.iterator();
-			while (inputListIterator.hasNext()) { // Iterate over each line where each line represents all sentences from a particular webpage URL
-				resetParser(); // Initialize the parser object
-				input = inputListIterator.next(); // Grabs a line
-				sentences = Arrays.asList(input.split(SPLIT_SYMBOL)); // Split the line into sentences according to the default split token
-				Iterator<String> sentencesIterator = sentences.iterator(); // Iterate over the sentences
-				url = sentencesIterator.next(); // The URL is always at the first position in a line
-				while (sentencesIterator.hasNext()) { // While there are still unprocessed sentences
-					extractPOS(sentencesIterator.next()); // Extract the part-of-speech of each word in the current sentence
+			final StringBuilder result = new StringBuilder();
+			parse(inputPath, new BinaryRecords.RecordWriter() {
+				public void write(FeatureRecord record) {
+					result.append("\n").append(record.toLine()); // Saves the noun group and verb group results
 				}
-				chainFeature(); // Group related words together based on their part-of-speech to identify the main topic and save the intermediate result into the parser object
-				output = output + "\n" + url + SPLIT_SYMBOL + "VERB" + SPLIT_SYMBOL + verbString() + "\n" + url + SPLIT_SYMBOL + "NOUN" + SPLIT_SYMBOL + nounString(); // Saves the noun group and verb group results
-			}
-			output = output.substring(1); // Need to remove the extra newline character at the start
+				
+				public void close() {
+				}
+			});
+			output = result.substring(1); // Need to remove the extra newline character at the start
 		}
 		return output;
 	}
 	
+	// Parses a webpages txt file and writes the keywords one record at a time
+	// Input is the webpages txt file path and the output path, see BinaryRecords.create for the output format
+	public void parseFile(String inputPath, String outputPath) throws IOException {
+		BinaryRecords.RecordWriter out = BinaryRecords.create(outputPath);
+		try {
+			parse(inputPath, out);
+		} finally {
+			out.close();
+		}
+	}
+	
+	// Parses the webpages a batch at a time, so a txt file of any size can be parsed
+	// Input is either a txt file path where each line holds the sentences of a webpage or a string in the same format, and the writer taking the keywords
+	private void parse(String inputPath, BinaryRecords.RecordWriter out) throws IOException {
+		List<PageRecord> pages = new ArrayList<PageRecord>();
+		if (inputPath.contains(".txt")) { // If the input is a txt file path then read it one line at a time
+			LineReader in = new LineReader(inputPath);
+			try {
+				String input;
+				while ((input = in.readLine()) != null) { // Each line represents all sentences from a particular webpage URL
+					pages.add(PageRecord.parse(input));
+					if (pages.size() == PAGES_PER_BATCH) {
+						write(parsePages(pages), out);
+						pages.clear();
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} else { // If the input is a string then break it into lines according to the newline character
+			for (String input : inputPath.split("\n")) {
+				pages.add(PageRecord.parse(input));
+			}
+		}
+		write(parsePages(pages), out);
+	}
+	
+	private static void write(List<List<FeatureRecord>> parsed, BinaryRecords.RecordWriter out) throws IOException {
+		for (List<FeatureRecord> records : parsed) {
+			for (FeatureRecord record : records) {
+				out.write(record);
+			}
+		}
+	}
+	
+	// Parses many webpages one after another
+	// Input is the list of records holding the URL and the sentences of each webpage
+	// Output is the result of parsePage for each webpage in the same order
+	public List<List<FeatureRecord>> parsePages(List<PageRecord> pages) {
+		List<List<FeatureRecord>> results = new ArrayList<List<FeatureRecord>>();
+		for (PageRecord page : pages) {
+			results.add(parsePage(page));
+		}
+		return results;
+	}
+	
+	// Parses the sentences of a single webpage
+	// Input is the record holding the URL and its sentences
+	// Output is the verb group followed by the noun group of the main topic
+	public List<FeatureRecord> parsePage(PageRecord page) {
+		List<String> tagged = new ArrayList<String>();
+		for (String sentence : page.sentences) {
+			tagged.add(tagSentence(sentence)); // Extract the part-of-speech of each word in the current sentence
+		}
+		return parseTagged(page.url, tagged);
+	}
+	
+	// Starts parsing a single webpage, this parser does the work right away
+	// Output is the pending result of parsePage, which is already done
+	public Future<List<FeatureRecord>> submit(final PageRecord page) {
+		FutureTask<List<FeatureRecord>> task = new FutureTask<List<FeatureRecord>>(new Callable<List<FeatureRecord>>() {
+			public List<FeatureRecord> call() {
+				return parsePage(page);
+			}
+		});
+		task.run();
+		return task;
+	}
+	
+	// Waits for a pending result, a failed parse is thrown again on the waiting thread
+	public static List<FeatureRecord> get(Future<List<FeatureRecord>> result) throws InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause()); // parsePage throws no checked exceptions
+		}
+	}
+	
+	// Groups the words of a webpage whose sentences are already tagged
+	// Input is the URL and the tagged sentences in their original order
+	// Output is the verb group followed by the noun group of the main topic, both empty for a webpage without keywords such as one that could not be fetched
+	public List<FeatureRecord> parseTagged(String url, List<String> taggedSentences) {
+		resetParser(); // Initialize the parser object
+		for (String tagged : taggedSentences) {
+			extractPOS(tagged);
+		}
+		chainFeature(); // Group related words together based on their part-of-speech to identify the main topic and save the intermediate result into the parser object
+		
+		List<FeatureRecord> records = new ArrayList<FeatureRecord>();
+		records.add(new FeatureRecord(url, FeatureRecord.VERB, mainTopic(this.verbFeature)));
+		records.add(new FeatureRecord(url, FeatureRecord.NOUN, mainTopic(this.nounFeature)));
+		return records;
+	}
+	
+	// Output is a copy of the longest chain, or an empty list if no sentence had a keyword
+	private List<String> mainTopic(List<List<String>> features) {
+		return features.isEmpty() ? new ArrayList<String>() : new ArrayList<String>(features.get(this.longestChainIndex));
+	}
+	
+	// Runs the Stanford Part-of-Speech Tagger, the result is a single string containing the tags in this format: Word1_TT Word2_TT where TT equals NN (noun) or VB (verb)
+	public String tagSentence(String str) {
+		return this.tagger.tagString(str);
+	}
+	
+	// Output is a new parser on the same tagger with the same stop words and lemma cache, for parsing on another thread
+	protected Parser copy() {
+		Parser copy = new Parser(this.tagger);
+		copy.stopWords = this.stopWords;
+		copy.lemmaCache = this.lemmaCache;
+		return copy;
+	}
+	
+	// Sets the words that are ignored, StopWords.LEGACY gives the results of the old substring matching for comparison
+	public void setStopWords(StopWords stopWords) {
+		this.stopWords = stopWords;
+	}
+	
+	// Sets the cache of stemmed tokens, the lemmas also get their IDs from the term dictionary of this cache
+	public void setLemmaCache(LemmaCache lemmaCache) {
+		this.lemmaCache = lemmaCache;
+	}
+	
+	public LemmaCache getLemmaCache() {
+		return this.lemmaCache;
+	}
+	
 	// Initialize variables
 	public void resetParser() {
 		this.nounFeature = new ArrayList<List<String>>();
 		this.verbFeature = new ArrayList<List<String>>();
-		this.keyWords = new ArrayList<String>();
+		this.keyWords = new LinkedHashSet<String>();
 		this.longestChainIndex = 0;
 	}
 	
 	public static void main(String[] args) throws IOException {
-		if (args.length != 2) { // See if the number of command line input is correct
-			System.out.println("java Parser <webpage textfile path> <output textfile path>");
+		if (args.length < 2 || args.length > 4) { // See if the number of command line input is correct
+			System.out.println("java Parser <webpage textfile path> <output path, binary if it ends with " + BinaryRecords.EXTENSION + "> [number of threads] [stop word textfile path | legacy]");
 			return;
 		}
-		Parser p = new Parser();
-		String output = p.beginParsing(args[0]); // Parsing is done here
-		Parser.writeTxt(args[1], output); // Saves the result into a text file
+		Parser p;
+		if (args.length >= 3) { // Parse the webpages at the same time on the given number of threads
+			p = new ParallelParser(TaggerRegistry.get(TAGGER_MODEL_PATH), new ForkJoinPool(Integer.parseInt(args[2])));
+		} else {
+			p = new Parser();
+		}
+		if (args.length == 4) { // Use other stop words, or the old matching to compare the results
+			p.setStopWords(args[3].equals("legacy") ? StopWords.LEGACY : StopWords.load(args[3]));
+		}
+		p.parseFile(args[0], args[1]); // Parsing is done here and the result is saved one record at a time
+		System.out.println(p.getLemmaCache());
 		return;
 	}
 	
-	// Extracts the part-of-speech from a sentence
-	private void extractPOS(String str) {
-		// Runs the Stanford Part-of-Speech Tagger, the result is a single string containing the tags in this format: Word1_TT Word2_TT where TT equals NN (noun) or VB (verb)
-		String tagged = this.tagger.tagString(str);
-		
+	// Extracts the part-of-speech from a tagged sentence
+	private void extractPOS(String tagged) {
 		String[] splitSpace = tagged.split(" "); // Separate the part-of-speech result into individual tags
-		String[] splitUnderscore;
+		LemmaCache.Token token;
 		String tempWord;
 		List<String> tempNoun = new ArrayList<String>();
 		List<String> tempVerb = new ArrayList<String>();
+		Set<String> tempNounSet = new HashSet<String>(); // Same words as the buffers, for constant time lookups
+		Set<String> tempVerbSet = new HashSet<String>();
 		for (int t = 0; t < splitSpace.length; t++) {
 			if (splitSpace[t].contains("_")) {
-				splitUnderscore = splitSpace[t].split("_"); // Split each tag into word and type
+				token = this.lemmaCache.token(splitSpace[t], this.morphology); // Split each tag into word and type, and stem the word to reduce it to its base form
 				
-				if (!IGNORE_LIST.contains(splitUnderscore[0].toLowerCase())) { // Test if each word is on the ignore list
-					tempWord = Morphology.stemStatic(splitUnderscore[0], splitUnderscore[1]).word(); // Stem the word to reduce it to its base form
-					if (!tempNoun.contains(splitUnderscore[0]) && splitUnderscore[1].contains(NOUN)) { // If the current word is a noun
+				if (!this.stopWords.contains(token.lowerCase)) { // Test if each word is on the ignore list
+					tempWord = token.lemma;
+					// The buffers hold stemmed words but are tested with the word as written, so a word whose stem differs can be added twice as before
+					if (!tempNounSet.contains(token.word) && token.noun) { // If the current word is a noun
 						tempNoun.add(tempWord); // Add the word to the noun buffer
-						if (!this.keyWords.contains(tempWord)) {
-							this.keyWords.add(tempWord); // Add the word to the list of keyword
-						}
+						tempNounSet.add(tempWord);
+						this.keyWords.add(tempWord); // Add the word to the list of keyword
 					}
-					if (!tempVerb.contains(splitUnderscore[0]) && splitUnderscore[1].contains(VERB)) { // If the current word is a verb
+					if (!tempVerbSet.contains(token.word) && token.verb) { // If the current word is a verb
 						tempVerb.add(tempWord); // Add the word to the verb buffer
-						if (!this.keyWords.contains(tempWord)) {
-							this.keyWords.add(tempWord); // Add the word to the list of keyword
-						}
+						tempVerbSet.add(tempWord);
+						this.keyWords.add(tempWord); // Add the word to the list of keyword
 					}
 				}
 			}
@@ -130,37 +281,10 @@ public class Parser {
 	// Construct lexical chains using indirect association, the purpose is to identify the main topic when a webpage does not only focus on one topic
 	// The logic of this method is difficult to explain here, you need to read my thesis: K. Y. Tam, "Video Summarization based on Speaker Unit", University of Sydney, 2011
 	private void chainFeature() {
-		int f = 0;
-		int t = 0;
-		int len = 0;
-		boolean found;
-		while (f < this.nounFeature.size()) { // Keep merging the list of nouns and the list of verbs as long as we are not over the boundaries
-			found = false;
-			for (int o = 0; o < this.nounFeature.size(); o++) {
-				
-				// If two sentences from the same URL have the same noun or the same verb then those sentences are probably related
-				if ((o != f) && (!Collections.disjoint(this.nounFeature.get(f), this.nounFeature.get(o)) || !Collections.disjoint(this.verbFeature.get(f), this.verbFeature.get(o)))) {
-					t = 0;
-					len = Math.max(this.nounFeature.get(o).size(), this.verbFeature.get(o).size());
-					while (t < len) {
-						if (t < this.nounFeature.get(o).size() && !this.nounFeature.get(f).contains(this.nounFeature.get(o).get(t))) {
-							this.nounFeature.get(f).add(this.nounFeature.get(o).get(t));
-						}
-						if (t < this.verbFeature.get(o).size() && !this.verbFeature.get(f).contains(this.verbFeature.get(o).get(t))) {
-							this.verbFeature.get(f).add(this.verbFeature.get(o).get(t));
-						}
-						t++;
-					}
-					this.nounFeature.remove(o);
-					this.verbFeature.remove(o);
-					found = true;
-					break;
-				}
-			
-			}
-			if (found == false) {
-				f++;
-			}
+		// Keep merging the list of nouns and the list of verbs of sentences that share a noun or a verb, see LexicalChainer
+		LexicalChainer.chain(this.nounFeature, this.verbFeature);
+		if (this.nounFeature.isEmpty()) { // No sentence had a keyword, so there is no main topic
+			return;
 		}
 		
 		// Find the length of each chain in order to identify the longest one corresponding to the main topic
@@ -173,51 +297,16 @@ public class Parser {
 	
 	// Reformats verb features into a string for output
 	public String verbString() {
-		String temp = this.verbFeature.get(this.longestChainIndex).toString().replace(", ", " ");
+		String temp = mainTopic(this.verbFeature).toString().replace(", ", " ");
 		return new String(temp.substring(1, temp.length() - 1).replace(" ", SPLIT_SYMBOL));
 	}
 	
 	// Reformats noun features into a string for output
 	public String nounString() {
-		String temp = this.nounFeature.get(this.longestChainIndex).toString().replace(", ", " ");
+		String temp = mainTopic(this.nounFeature).toString().replace(", ", " ");
 		return new String(temp.substring(1, temp.length() - 1).replace(" ", SPLIT_SYMBOL));
 	}
 	
-	// Opens and reads text from a txt file
-	// Input is the txt file path
-	// Output is a list structure containing each line in the text file
-	private static List<String> readTxt(String path) throws IOException {
-		List<String> input = new ArrayList<String>();
-		String line;
-		
-		InputStream is = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
-		
-		try {
-			is = new FileInputStream(path);
-			isr = new InputStreamReader(is);
-			br = new BufferedReader(isr);
-			
-			while ((line = br.readLine()) != null) {
-				input.add(line);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			if (is != null) {
-				is.close();
-			}
-			if (isr != null) {
-				isr.close();
-			}
-			if (br != null) {
-				br.close();
-			}
-		}
-		return input;
-	}
-	
 	// Writes a string to a txt file
 	// Input is the destination path and the output string you want to write to the txt file
 	// Output is the txt file at the destination
@@ -228,7 +317,7 @@ public class Parser {
 		try {
 			// Open streams for writing
 			os = new FileOutputStream(path);
-			osw = new OutputStreamWriter(os);
+			osw = new OutputStreamWriter(os, "UTF-8");
 			bw = new BufferedWriter(osw);
 			
 			bw.write(output);
@@ -0,0 +1,23 @@
+package backEnd;
+
+// The Partitioner interface decides which reduce task receives a key and which keys are reduced together
+// Keys are sorted in full within a reduce task, and neighbouring keys of the same group are handed to a single reduce call
+// Every key of a group has to go to the same reduce task
+public interface Partitioner {
+	// Every key is its own group and the keys are spread by their hash
+	Partitioner BY_KEY = new Partitioner() {
+		public int partition(String key, int partitions) {
+			return (key.hashCode() & Integer.MAX_VALUE) % partitions;
+		}
+		
+		public String group(String key) {
+			return key;
+		}
+	};
+	
+	// Output is the reduce task of a key, from 0 to partitions - 1
+	int partition(String key, int partitions);
+	
+	// Output is the key of the group a key belongs to, which is the key given to the reducer
+	String group(String key);
+}
\ No newline at end of file
@@ -0,0 +1,326 @@
+package backEnd;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// The Pipeline class runs the four backEnd modules at the same time and passes records from one module to the next through bounded queues
+// Each module starts working as soon as the first record from the previous module is ready, the txt files are only written if a sink is set
+// With a ParallelParser and a ParallelDecomposer many pages are parsed and many lists are decomposed at the same time, their results are still passed on in the input order
+public class Pipeline {
+	private static final int QUEUE_CAPACITY = 64; // The number of records a module can run ahead of the next one
+	
+	// These mark the end of the records in a queue
+	private static final PageRecord END_OF_PAGES = new PageRecord("", new ArrayList<String>());
+	private static final FeatureRecord END_OF_FEATURES = new FeatureRecord("", "", new ArrayList<String>());
+	private static final Future<FeatureRecord> END_OF_TASKS = new FutureTask<FeatureRecord>(new Callable<FeatureRecord>() {
+		public FeatureRecord call() {
+			return END_OF_FEATURES;
+		}
+	});
+	private static final Future<List<FeatureRecord>> END_OF_PARSES = new FutureTask<List<FeatureRecord>>(new Callable<List<FeatureRecord>>() {
+		public List<FeatureRecord> call() {
+			return new ArrayList<FeatureRecord>();
+		}
+	});
+	
+	private Parser parser;
+	private Decomposer decomposer;
+	private PageFetcher fetcher; // Fetches the webpages at the same time when set, otherwise one after another
+	
+	// Optional txt file paths for the intermediate and final results
+	private String pageSink;
+	private String keywordSink;
+	private String featureSink;
+	private String distanceSink;
+	
+	private List<Thread> stages;
+	private volatile Throwable failure;
+	private volatile boolean stopped; // The stages were interrupted, the next module may no longer take from its queue
+	
+	public Pipeline(Parser parser, Decomposer decomposer) {
+		this.parser = parser;
+		this.decomposer = decomposer;
+	}
+	
+	// Fetch the webpages with the given fetcher
+	public void setFetcher(PageFetcher fetcher) {
+		this.fetcher = fetcher;
+	}
+	
+	// Also write the extracted sentences to a txt file in the WebpageToTxt output format
+	public void setPageSink(String path) {
+		this.pageSink = path;
+	}
+	
+	// Also write the keywords to a txt file in the Parser output format
+	public void setKeywordSink(String path) {
+		this.keywordSink = path;
+	}
+	
+	// Also write the expanded features to a txt file in the Decomposer output format
+	public void setFeatureSink(String path) {
+		this.featureSink = path;
+	}
+	
+	// Also write the scores to a txt file in the SemanticDistance output format
+	public void setDistanceSink(String path) {
+		this.distanceSink = path;
+	}
+	
+	// Runs all modules on a query
+	// Input is the list of lines from the query file, the query itself followed by the URLs
+	// Output is the score of each URL in the same order as the input
+	public List<ScoreRecord> run(final List<String> lines) throws IOException, InterruptedException {
+		final BlockingQueue<PageRecord> pages = new ArrayBlockingQueue<PageRecord>(QUEUE_CAPACITY);
+		final BlockingQueue<Future<List<FeatureRecord>>> parses = new ArrayBlockingQueue<Future<List<FeatureRecord>>>(QUEUE_CAPACITY);
+		final BlockingQueue<FeatureRecord> keywords = new ArrayBlockingQueue<FeatureRecord>(QUEUE_CAPACITY);
+		final BlockingQueue<Future<FeatureRecord>> tasks = new ArrayBlockingQueue<Future<FeatureRecord>>(QUEUE_CAPACITY);
+		final BlockingQueue<FeatureRecord> features = new ArrayBlockingQueue<FeatureRecord>(QUEUE_CAPACITY);
+		final List<ScoreRecord> scores = new ArrayList<ScoreRecord>();
+		this.failure = null;
+		this.stopped = false;
+		final long deadline = this.decomposer.queryDeadline(); // The query time budget of the decomposer counts from the start of the run
+		
+		final List<Thread> stages = new ArrayList<Thread>();
+		this.stages = stages;
+		stages.add(new Stage("fetch") {
+			protected void work() throws Exception {
+				fetch(lines, pages);
+			}
+		});
+		stages.add(new Stage("parse") {
+			protected void work() throws Exception {
+				parse(pages, parses);
+			}
+		});
+		stages.add(new Stage("keywords") {
+			protected void work() throws Exception {
+				gatherKeywords(parses, keywords);
+			}
+		});
+		stages.add(new Stage("decompose") {
+			protected void work() throws Exception {
+				decompose(keywords, tasks, deadline);
+			}
+		});
+		stages.add(new Stage("gather") {
+			protected void work() throws Exception {
+				gather(tasks, features);
+			}
+		});
+		stages.add(new Stage("score") {
+			protected void work() throws Exception {
+				score(features, scores);
+			}
+		});
+		
+		for (Thread stage : stages) {
+			stage.start();
+		}
+		try {
+			for (Thread stage : stages) {
+				stage.join();
+			}
+		} catch (InterruptedException e) {
+			stopAll(stages);
+			throw e;
+		}
+		
+		if (this.failure != null) {
+			if (this.failure instanceof IOException) {
+				throw (IOException) this.failure;
+			}
+			throw new IOException("Pipeline stage failed", this.failure);
+		}
+		return scores;
+	}
+	
+	// First module, extracts the sentences of each URL
+	private void fetch(List<String> lines, BlockingQueue<PageRecord> out) throws Exception {
+		TxtSink sink = new TxtSink(this.pageSink);
+		try {
+			if (this.fetcher != null) {
+				for (Future<PageRecord> page : this.fetcher.submitAll(lines)) { // Pages are passed on in the input order as soon as each one is ready
+					pass(PageFetcher.get(page), sink, out);
+				}
+			} else {
+				for (String line : lines) {
+					if (line.contains("QUERY")) { // If the current line is the original query then we just pass it on
+						pass(PageRecord.parse(line), sink, out);
+					} else {
+						pass(WebpageToTxt.webPageRecord(line), sink, out);
+					}
+				}
+			}
+		} finally {
+			end(out, END_OF_PAGES);
+			sink.close();
+		}
+	}
+	
+	// Failed pages are passed on without sentences, so they score NaN and every URL keeps its line in the distance file
+	private void pass(PageRecord page, TxtSink sink, BlockingQueue<PageRecord> out) throws Exception {
+		sink.write(page.toLine());
+		if (page.isFailed()) {
+			System.err.println("Could not fetch " + page.url + ": " + page.error);
+		}
+		out.put(page);
+	}
+	
+	// Second module, starts grouping the nouns and verbs of each page
+	// A ParallelParser works on many pages at the same time, the bounded queue limits how many are pending
+	private void parse(BlockingQueue<PageRecord> in, BlockingQueue<Future<List<FeatureRecord>>> out) throws Exception {
+		try {
+			PageRecord page;
+			while ((page = in.take()) != END_OF_PAGES) {
+				out.put(this.parser.submit(page));
+			}
+		} finally {
+			end(out, END_OF_PARSES);
+		}
+	}
+	
+	// Passes on the keywords of each page in the input order as soon as each page is parsed
+	private void gatherKeywords(BlockingQueue<Future<List<FeatureRecord>>> in, BlockingQueue<FeatureRecord> out) throws Exception {
+		TxtSink sink = new TxtSink(this.keywordSink);
+		try {
+			Future<List<FeatureRecord>> pending;
+			while ((pending = in.take()) != END_OF_PARSES) {
+				for (FeatureRecord record : Parser.get(pending)) {
+					sink.write(record.toLine());
+					out.put(record);
+				}
+			}
+		} finally {
+			end(out, END_OF_FEATURES);
+			sink.close();
+		}
+	}
+	
+	// Third module, starts expanding the nouns and verbs into related features
+	// A ParallelDecomposer works on many records at the same time, the bounded queue limits how many are pending
+	private void decompose(BlockingQueue<FeatureRecord> in, BlockingQueue<Future<FeatureRecord>> out, long deadline) throws Exception {
+		try {
+			FeatureRecord record;
+			while ((record = in.take()) != END_OF_FEATURES) {
+				out.put(this.decomposer.submit(record, deadline));
+			}
+		} finally {
+			end(out, END_OF_TASKS);
+		}
+	}
+	
+	// Passes on the expanded features in the input order as soon as each one is ready
+	private void gather(BlockingQueue<Future<FeatureRecord>> in, BlockingQueue<FeatureRecord> out) throws Exception {
+		TxtSink sink = new TxtSink(this.featureSink);
+		try {
+			Future<FeatureRecord> pending;
+			FeatureRecord record;
+			while ((pending = in.take()) != END_OF_TASKS) {
+				record = Decomposer.get(pending);
+				sink.write(record.toLine());
+				out.put(record);
+			}
+		} finally {
+			end(out, END_OF_FEATURES);
+			sink.close();
+		}
+	}
+	
+	// Last module, compares the features of each URL against the ones from the query, pairing the records like SemanticDistance
+	// The query records always arrive first because every module keeps the order of the input
+	private void score(BlockingQueue<FeatureRecord> in, final List<ScoreRecord> scores) throws Exception {
+		final TxtSink sink = new TxtSink(this.distanceSink);
+		try {
+			SemanticDistance.PageReader reader = new SemanticDistance.PageReader() {
+				protected void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) throws IOException {
+					ScoreRecord score = new ScoreRecord(url, SemanticDistance.score(this.queryNouns, this.queryVerbs, nounTwo, verbTwo));
+					sink.write(score.toLine());
+					scores.add(score);
+				}
+			};
+			FeatureRecord record;
+			while ((record = in.take()) != END_OF_FEATURES) {
+				reader.add(record);
+			}
+			reader.finish();
+		} finally {
+			sink.close();
+		}
+	}
+	
+	// Passes on the end marker of a module, unless the pipeline was stopped, since a full queue would then never be emptied
+	private <T> void end(BlockingQueue<T> out, T marker) throws InterruptedException {
+		if (!this.stopped) {
+			out.put(marker); // Interrupted if another module fails meanwhile
+		}
+	}
+	
+	private void stopAll(List<Thread> stages) {
+		this.stopped = true;
+		for (Thread stage : stages) {
+			stage.interrupt();
+		}
+	}
+	
+	// A module running on its own thread, the first failure stops the whole pipeline
+	private abstract class Stage extends Thread {
+		Stage(String name) {
+			super("pipeline-" + name);
+		}
+		
+		protected abstract void work() throws Exception;
+		
+		public void run() {
+			try {
+				work();
+			} catch (InterruptedException e) {
+				// Another module failed and the pipeline is being stopped
+			} catch (Throwable t) {
+				synchronized (Pipeline.this) {
+					if (Pipeline.this.failure == null) {
+						Pipeline.this.failure = t;
+					}
+				}
+				stopAll(Pipeline.this.stages);
+			}
+		}
+	}
+	
+	// Writes records to a txt file in UTF-8 one line at a time, does nothing if no path is given
+	private static class TxtSink {
+		private BufferedWriter bw;
+		private boolean first = true;
+		
+		TxtSink(String path) throws IOException {
+			if (path != null) {
+				this.bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), "UTF-8"));
+			}
+		}
+		
+		void write(String line) throws IOException {
+			if (this.bw != null) {
+				if (!this.first) {
+					this.bw.write("\n");
+				}
+				this.bw.write(line);
+				this.first = false;
+			}
+		}
+		
+		void close() throws IOException {
+			if (this.bw != null) {
+				this.bw.close();
+			}
+		}
+	}
+}
\ No newline at end of file
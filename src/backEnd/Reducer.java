@@ -0,0 +1,12 @@
+package backEnd;
+
+import java.util.Iterator;
+
+// The Reducer interface turns the values of one key into any number of key-value pairs, like the reduce function of a Hadoop job
+// A reducer whose output has the type of its input can also be used as a combiner, which runs on the output of each map task before it is written out
+// One reducer is used by all reduce slots at the same time, so it has to be thread-safe
+public interface Reducer<V, O> {
+	// Input is the key, its values in the order of their full keys, and the emitter taking the pairs
+	// The values can only be read once, the ones left unread are skipped
+	void reduce(String key, Iterator<V> values, Emitter<O> out) throws Exception;
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package backEnd;
+
+// The ScoreRecord class holds the semantic distance between the query and one webpage URL
+public class ScoreRecord {
+	public final String url;
+	public final double score;
+	public final boolean estimated; // The score was estimated from MinHash signatures instead of compared term by term, see LshIndex
+	
+	public ScoreRecord(String url, double score) {
+		this(url, score, false);
+	}
+	
+	public ScoreRecord(String url, double score, boolean estimated) {
+		this.url = url;
+		this.score = score;
+		this.estimated = estimated;
+	}
+	
+	// Marks a URL that could not be scored, such as a webpage that could not be fetched
+	// Output is a record whose score is NaN like the score of a webpage without keywords, so line n of a distance txt file is always the n-th URL
+	public static ScoreRecord failed(String url) {
+		return new ScoreRecord(url, Double.NaN);
+	}
+	
+	// Formats the record as a line of the distance txt file
+	public String toLine() {
+		return String.valueOf(this.score);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,402 @@
+package backEnd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.mit.jwi.IRAMDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
+
+// The ScoringServer class keeps the tagger, the WordNet graph and every cache in memory and scores the queries sent to it over HTTP, so only the start of the server pays for loading them
+// POST /score takes {"query": "...", "urls": ["...", ...]} to fetch the webpages, or {"query": "...", "pages": [{"url": "...", "text": "..."}, ...]} with the webpages already fetched, "sentences" can be given instead of "text"
+// The answer is {"query": "...", "scores": [{"url": "...", "score": 0.25}, ...], "failed": [{"url": "...", "error": "..."}, ...], "millis": 40} with the scores in the order of the webpages
+// GET /stats answers with the counters of the server and of the shared caches
+// Each request is scored on one worker, the requests beyond the workers wait in a bounded queue and are turned away with 503 when it is full, before their body is read
+public class ScoringServer {
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+	private static final int MAX_BODY_BYTES = 16 * 1024 * 1024; // Larger requests are turned away with 413
+	private static final int FETCH_THREADS = 8; // The number of webpages downloaded at the same time, over all requests
+	private static final String QUERY_URL = "QUERY"; // URL of the query record, like in the query files
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private HttpServer server;
+	private ExecutorService connections; // Reads the requests and writes the answers
+	private ThreadPoolExecutor workers; // Scores the requests
+	private Semaphore admissions; // One permit for each request a worker or the queue can take, a request gets one before its body is read and parsed
+	private Parser parser;
+	private Decomposer decomposer;
+	private PageFetcher fetcher;
+	
+	// Resources made by create, released by stop
+	private ExecutorService fetchThreads;
+	private ExpansionCache expansions;
+	private IRAMDictionary dictionary;
+	
+	private AtomicLong accepted = new AtomicLong();
+	private AtomicLong rejected = new AtomicLong(); // Turned away because the queue was full
+	private AtomicLong failed = new AtomicLong(); // Bad requests and requests whose scoring threw
+	private AtomicLong completed = new AtomicLong();
+	private AtomicLong scoringNanos = new AtomicLong(); // Time spent fetching and scoring the requests, without the time in the queue
+	
+	// Scoring server on 127.0.0.1
+	// Input is the port (0 for any free port), the parser and the decomposer whose copies score the requests, the fetcher for the URLs (null to only take pages already fetched), the number of workers and the capacity of the queue
+	public ScoringServer(int port, Parser parser, Decomposer decomposer, PageFetcher fetcher, int workers, int queueCapacity) throws IOException {
+		this.parser = parser;
+		this.decomposer = decomposer;
+		this.fetcher = fetcher;
+		this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+		this.admissions = new Semaphore(workers + queueCapacity);
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		this.server.createContext("/score", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				serveScore(exchange);
+			}
+		});
+		this.server.createContext("/stats", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "text/plain", ScoringServer.this.toString());
+			}
+		});
+		this.connections = Executors.newCachedThreadPool(); // Only waits on the workers, and the requests without an admission are answered at once, so a thread per open request is cheap
+		this.server.setExecutor(this.connections);
+	}
+	
+	// Builds a server with the models and caches of WithoutMapReduce, they are loaded before the server starts
+	// Input is the port, the number of workers and the capacity of the queue
+	public static ScoringServer create(int port, int workers, int queueCapacity) throws IOException {
+		// The decomposer reads the compiled snapshot of the dictionary if there is one
+		SynsetGraph graph;
+		IRAMDictionary dictionary = null;
+		if (Decomposer.SNAPSHOT_PATH.isFile()) {
+			graph = CompiledSynsetGraph.open(Decomposer.SNAPSHOT_PATH);
+		} else {
+			dictionary = new RAMDictionary(Decomposer.DICTIONARY_PATH, ILoadPolicy.IMMEDIATE_LOAD); // A server keeps the whole dictionary in memory
+			dictionary.open();
+			graph = new JwiSynsetGraph(dictionary);
+		}
+		ExpansionCache expansions = new ExpansionCache(graph, ExpansionCache.DEFAULT_MAX_ENTRIES);
+		if (WithoutMapReduce.EXPANSION_CACHE_PATH.isFile()) {
+			expansions.load(WithoutMapReduce.EXPANSION_CACHE_PATH);
+		}
+		ExecutorService fetchThreads = Executors.newFixedThreadPool(FETCH_THREADS);
+		PageFetcher fetcher = new PageFetcher(fetchThreads);
+		fetcher.setCache(new PageCache(WithoutMapReduce.PAGE_CACHE_PATH, WithoutMapReduce.PAGE_CACHE_BYTES, WithoutMapReduce.PAGE_CACHE_TTL));
+		
+		// Each request is decomposed on a single worker, the requests themselves are what runs in parallel
+		ScoringServer server = new ScoringServer(port, new Parser(), new Decomposer(expansions), fetcher, workers, queueCapacity);
+		server.fetchThreads = fetchThreads;
+		server.expansions = expansions;
+		server.dictionary = dictionary;
+		return server;
+	}
+	
+	public void start() {
+		this.server.start();
+	}
+	
+	// Stops taking requests, lets the queued requests finish and saves the expansion cache for the next start
+	public void stop() throws IOException, InterruptedException {
+		this.workers.shutdown();
+		this.workers.awaitTermination(1, TimeUnit.MINUTES);
+		this.server.stop(0);
+		this.connections.shutdown();
+		if (this.fetchThreads != null) {
+			this.fetchThreads.shutdown();
+		}
+		if (this.expansions != null) {
+			this.expansions.save(WithoutMapReduce.EXPANSION_CACHE_PATH);
+		}
+		if (this.dictionary != null) {
+			this.dictionary.close();
+		}
+	}
+	
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+	
+	// Turns a scoring request away with 503 when the server is full, or else reads it and waits for a worker to answer it
+	private void serveScore(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			exchange.getResponseHeaders().set("Allow", "POST");
+			respond(exchange, 405, "text/plain", "Use POST");
+			return;
+		}
+		if (!this.admissions.tryAcquire()) { // Every worker and every place in the queue is taken, so the body is not even read
+			this.rejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, "text/plain", "Too many requests in the queue");
+			return;
+		}
+		try {
+			serveAdmitted(exchange);
+		} finally {
+			this.admissions.release();
+		}
+	}
+	
+	// Reads a scoring request that holds an admission and waits for a worker to answer it
+	private void serveAdmitted(HttpExchange exchange) throws IOException {
+		final String query;
+		final List<String> urls = new ArrayList<String>();
+		final List<PageRecord> pages = new ArrayList<PageRecord>();
+		try {
+			byte[] body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				this.failed.incrementAndGet();
+				respond(exchange, 413, "text/plain", "The request is larger than " + MAX_BODY_BYTES + " bytes");
+				return;
+			}
+			query = readRequest(new String(body, UTF8), urls, pages);
+		} catch (IllegalArgumentException e) {
+			this.failed.incrementAndGet();
+			respond(exchange, 400, "text/plain", e.getMessage());
+			return;
+		}
+		
+		Future<String> answer;
+		try {
+			answer = this.workers.submit(new Callable<String>() {
+				public String call() throws InterruptedException {
+					long start = System.nanoTime();
+					if (!urls.isEmpty()) {
+						pages.addAll(ScoringServer.this.fetcher.fetchAll(urls));
+					}
+					return score(query, pages, start);
+				}
+			});
+		} catch (RejectedExecutionException e) { // The server is stopping, or the workers that just answered have not taken the next request yet
+			this.rejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, "text/plain", "Too many requests in the queue");
+			return;
+		}
+		this.accepted.incrementAndGet();
+		try {
+			respond(exchange, 200, "application/json", answer.get());
+			this.completed.incrementAndGet();
+		} catch (ExecutionException e) {
+			this.failed.incrementAndGet();
+			if (e.getCause() instanceof IllegalArgumentException) { // The query has no keywords
+				respond(exchange, 400, "text/plain", e.getCause().getMessage());
+			} else {
+				respond(exchange, 500, "text/plain", e.getCause().toString());
+			}
+		} catch (InterruptedException e) {
+			answer.cancel(true);
+			Thread.currentThread().interrupt();
+			respond(exchange, 503, "text/plain", "The server is stopping");
+		}
+	}
+	
+	// Reads the JSON of a scoring request
+	// Input is the body of the request and the lists to fill with the URLs to fetch or the pages already fetched
+	// Output is the query, an IllegalArgumentException tells what is wrong with the request
+	private String readRequest(String body, List<String> urls, List<PageRecord> pages) {
+		Object json = Json.parse(body);
+		if (!(json instanceof Map)) {
+			throw new IllegalArgumentException("The request has to be a JSON object");
+		}
+		Map<?, ?> request = (Map<?, ?>) json;
+		String query = text(request, "query");
+		if (request.containsKey("urls")) {
+			if (this.fetcher == null) {
+				throw new IllegalArgumentException("This server only takes pages already fetched");
+			}
+			for (Object url : list(request, "urls")) {
+				if (!(url instanceof String)) {
+					throw new IllegalArgumentException("\"urls\" has to be a list of strings");
+				}
+				urls.add((String) url);
+			}
+		}
+		if (request.containsKey("pages")) {
+			for (Object value : list(request, "pages")) {
+				if (!(value instanceof Map)) {
+					throw new IllegalArgumentException("\"pages\" has to be a list of objects");
+				}
+				Map<?, ?> page = (Map<?, ?>) value;
+				String url = text(page, "url");
+				if (page.containsKey("sentences")) {
+					List<String> sentences = new ArrayList<String>();
+					for (Object sentence : list(page, "sentences")) {
+						sentences.add(String.valueOf(sentence));
+					}
+					pages.add(new PageRecord(url, sentences));
+				} else {
+					pages.add(new PageRecord(url, WebpageToTxt.splitSentences(text(page, "text"))));
+				}
+			}
+		}
+		if (urls.isEmpty() && pages.isEmpty()) {
+			throw new IllegalArgumentException("The request needs \"urls\" or \"pages\"");
+		}
+		return query;
+	}
+	
+	private static String text(Map<?, ?> object, String field) {
+		Object value = object.get(field);
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("\"" + field + "\" has to be a string");
+		}
+		return (String) value;
+	}
+	
+	private static List<?> list(Map<?, ?> object, String field) {
+		Object value = object.get(field);
+		if (!(value instanceof List)) {
+			throw new IllegalArgumentException("\"" + field + "\" has to be a list");
+		}
+		return (List<?>) value;
+	}
+	
+	// Scores the webpages of one request against its query on the calling thread, on copies of the shared parser and decomposer
+	// Input is the query, the webpages and the System.nanoTime() at which the work on the request started, a webpage that could not be fetched or has no keywords is listed as failed
+	// Output is the answer in JSON, an IllegalArgumentException if the query has no keywords
+	String score(String query, List<PageRecord> pages, long start) {
+		Parser parser = this.parser.copy();
+		Decomposer decomposer = this.decomposer.copy();
+		long deadline = decomposer.queryDeadline(); // The query time budget covers the whole request
+		
+		final StringBuilder scores = new StringBuilder();
+		StringBuilder failures = new StringBuilder();
+		SemanticDistance.PageReader reader = new SemanticDistance.PageReader() {
+			protected void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) {
+				double score = SemanticDistance.score(this.queryNouns, this.queryVerbs, nounTwo, verbTwo);
+				scores.append(scores.length() == 0 ? "" : ", ").append("{\"url\": ").append(Json.quote(url)).append(", \"score\": ").append(Json.number(score)).append('}');
+			}
+		};
+		try {
+			List<FeatureRecord> queryRecords = parser.parsePage(new PageRecord(QUERY_URL, Arrays.asList(query)));
+			if (!hasKeywords(queryRecords)) {
+				throw new IllegalArgumentException("No keywords in the query");
+			}
+			for (FeatureRecord record : queryRecords) {
+				reader.add(decomposer.decompose(record, deadline));
+			}
+			for (PageRecord page : pages) {
+				String error = page.error;
+				if (error == null) {
+					List<FeatureRecord> records = parser.parsePage(page);
+					if (hasKeywords(records)) {
+						for (FeatureRecord record : records) {
+							reader.add(decomposer.decompose(record, deadline));
+						}
+					} else {
+						error = "No keywords";
+					}
+				}
+				if (error != null) {
+					failures.append(failures.length() == 0 ? "" : ", ").append("{\"url\": ").append(Json.quote(page.url)).append(", \"error\": ").append(Json.quote(error)).append('}');
+				}
+			}
+			reader.finish();
+		} catch (IOException e) { // Only thrown for a query record after the webpages, which cannot happen here
+			throw new IllegalStateException(e);
+		}
+		long nanos = System.nanoTime() - start;
+		this.scoringNanos.addAndGet(nanos);
+		return "{\"query\": " + Json.quote(query) + ", \"scores\": [" + scores + "], \"failed\": [" + failures + "], \"millis\": " + nanos / 1000000 + "}";
+	}
+	
+	// Output is true if the parser found a main topic, it gives empty records for a text without keywords
+	private static boolean hasKeywords(List<FeatureRecord> records) {
+		for (FeatureRecord record : records) {
+			if (!record.terms.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// Output is the body of the request, or null if it is larger than MAX_BODY_BYTES
+	private static byte[] readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				body.write(buffer, 0, read);
+				if (body.size() > MAX_BODY_BYTES) {
+					return null;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return body.toByteArray();
+	}
+	
+	private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		byte[] bytes = body.getBytes(UTF8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream os = exchange.getResponseBody();
+		try {
+			os.write(bytes);
+		} finally {
+			os.close();
+		}
+	}
+	
+	public String toString() {
+		long done = this.completed.get();
+		StringBuilder stats = new StringBuilder("Scoring server: ");
+		stats.append(this.accepted.get()).append(" requests accepted, ").append(this.rejected.get()).append(" rejected, ").append(this.failed.get()).append(" failed, ");
+		stats.append(done).append(" completed, ").append(this.workers.getActiveCount()).append(" scoring, ").append(this.workers.getQueue().size()).append(" queued");
+		stats.append(String.format(", %.1f ms mean work per request", done == 0 ? 0.0 : this.scoringNanos.get() / 1e6 / done)).append('\n');
+		for (TaggerRegistry.Model model : TaggerRegistry.loaded()) {
+			stats.append(model).append('\n');
+		}
+		stats.append(LemmaCache.shared()).append('\n');
+		if (this.expansions != null) {
+			stats.append(this.expansions).append('\n');
+		}
+		return stats.append(this.decomposer.getStats()).toString();
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 3) { // Test if the number of command line arguments is correct
+			System.out.println("java ScoringServer <port> [worker threads] [queue capacity]");
+			return;
+		}
+		int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_QUEUE_CAPACITY;
+		final ScoringServer server = create(Integer.parseInt(args[0]), workers, queueCapacity);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				try {
+					server.stop();
+					System.out.println(server);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		});
+		server.start();
+		System.out.println("Scoring on http://127.0.0.1:" + server.getPort() + "/score with " + workers + " workers");
+	}
+}
\ No newline at end of file
@@ -2,17 +2,15 @@ package backEnd;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 // The SemanticDistance class compares the query features against the webpage features of the URLs and saves the result in a txt file
 public class SemanticDistance {
@@ -20,11 +18,23 @@ public class SemanticDistance {
 	
 	public static void main(String[] args) throws IOException {
 		List<Double> result = new ArrayList<Double>();
-		if (args.length != 2) { // Test if the number of command line arguments is correct
-			System.out.println("java SemanticDistance <features textfile path>");
+		if (args.length < 2 || args.length > 4) { // Test if the number of command line arguments is correct
+			System.out.println("java SemanticDistance <features path, txt or binary> <output textfile path> [top k | LSH bands LSH rows per band]");
 			return;
 		}
-		result = SemanticDistance.semanticDistance(args[0]); // The actual comparison is done here
+		if (args.length == 3) { // Only the k best webpages are kept, each line of the result holds the URL and the score
+			StringBuilder ranked = new StringBuilder();
+			for (ScoreRecord score : SemanticDistance.topK(args[0], Integer.parseInt(args[2]))) {
+				ranked.append(ranked.length() == 0 ? "" : "\n").append(score.url).append(SPLIT_SYMBOL).append(score.toLine());
+			}
+			writeTxt(args[1], ranked.toString());
+			return;
+		}
+		if (args.length == 4) { // Only the likely webpages are compared exactly, the scores of the others are estimated
+			result = SemanticDistance.semanticDistance(args[0], new LshIndex(Integer.parseInt(args[2]), Integer.parseInt(args[3])));
+		} else {
+			result = SemanticDistance.semanticDistance(args[0]); // The actual comparison is done here
+		}
 		String temp = new String(result.toString().replace(", ", "\n"));
 		writeTxt(args[1], temp.substring(1, temp.length() - 1)); // Saves the result to a txt file
 		return;
@@ -34,95 +44,139 @@ public class SemanticDistance {
 	// Input is either a string of features separated using the newline character or it is a txt file in the same format
 	// Output is a list structure containing the results
 	public static List<Double> semanticDistance(String inputPath) throws IOException {
-		String input, type, key;
-		List<String> inputList, features;
+		return semanticDistance(inputPath, null);
+	}
+	
+	// Reads the features and scores the webpages through an LshIndex, only the webpages likely to be similar to the query are compared exactly
+	// Input is the features like semanticDistance and an empty index, or null to compare every webpage exactly
+	// Output is a list structure containing the results, the estimated ones included
+	public static List<Double> semanticDistance(String inputPath, final LshIndex index) throws IOException {
+		final List<Double> result = new ArrayList<Double>();
+		PageReader reader = new PageReader() {
+			protected void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) {
+				// Compare the verb and noun list for each URL against the ones from the query
+				if (index == null) {
+					result.add(score(this.queryNouns, this.queryVerbs, nounTwo, verbTwo));
+				} else {
+					index.add(url, nounTwo, verbTwo);
+				}
+			}
+		};
+		reader.read(inputPath);
+		if (index != null) {
+			for (ScoreRecord score : index.score(reader.queryNouns, reader.queryVerbs)) {
+				result.add(score.score);
+			}
+		}
+		return result;
+	}
+	
+	// Scores the webpages one at a time as they are read and keeps only the best ones, so any number of webpages can be scored in the same memory
+	// Input is the features like semanticDistance and the number of webpages to keep
+	// Output is the URL and score of the k best webpages, best first
+	public static List<ScoreRecord> topK(String inputPath, int k) throws IOException {
+		final TopKRanker ranker = new TopKRanker(k);
+		new PageReader() {
+			protected void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) {
+				ranker.offer(new ScoreRecord(url, score(this.queryNouns, this.queryVerbs, nounTwo, verbTwo)));
+			}
+		}.read(inputPath);
+		return ranker.ranked();
+	}
+	
+	// Reads the features one line at a time and hands over each webpage as soon as both its noun and verb lines have been read
+	// The lines of a webpage can come in either order and do not have to be next to each other, only the webpages still missing a line are kept
+	// The query lines have to come before the lines of the webpages, since every webpage is compared against the whole query
+	abstract static class PageReader {
+		protected FeatureSet queryVerbs = FeatureSet.EMPTY; // Stores all verbs from the query as a set of term IDs
+		protected FeatureSet queryNouns = FeatureSet.EMPTY; // Stores all nouns from the query as a set of term IDs
+		private TermDictionary dictionary = new TermDictionary(); // Gives out the IDs of the query and webpage terms, it is dropped with the reader once the query is scored
+		private Map<String, FeatureSet[]> waiting = new LinkedHashMap<String, FeatureSet[]>(); // The noun and verb sets of the webpages missing a line
+		private boolean pages; // A webpage line has been read
 		
-		List<String> queryVerbList = new ArrayList<String>(); // Stores all verbs from the query into a list
-		List<String> queryNounList = new ArrayList<String>(); // Stores all nouns from the query into a list
-		List<String> verbKeyList = new ArrayList<String>(); // Stores the webpage URL (key) where each verb came from
-		List<List<String>> verbValueList = new ArrayList<List<String>>(); // Stores the verbs (value) corresponding to the verbKeyList
-		List<String> nounKeyList = new ArrayList<String>(); // Stores the webpage URL (key) where each noun came from
-		List<List<String>> nounValueList = new ArrayList<List<String>>(); // Stores the nouns (value) corresponding to the nounKeyList
+		// Called for each webpage in the order its last line was read, a webpage missing a line at the end of the input is handed over with an empty set for it
+		protected abstract void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) throws IOException;
 		
-		if (inputPath.contains(".txt")) { // Split the input into lines depending on whether the input is a string or txt file
-			inputList = readTxt(inputPath);
-		} else {
-			inputList = Arrays.asList(inputPath.split("\n"));
+		// Input is either a string of features separated using the newline character, a txt file in the same format or a binary records file
+		void read(String inputPath) throws IOException {
+			if (inputPath.contains(".txt") || BinaryRecords.isBinary(inputPath)) { // Read a file one record at a time in either format
+				BinaryRecords.RecordReader in = BinaryRecords.open(inputPath);
+				try {
+					FeatureRecord record;
+					while ((record = in.read()) != null) {
+						add(record);
+					}
+				} finally {
+					in.close();
+				}
+			} else {
+				BufferedReader br = new BufferedReader(new StringReader(inputPath));
+				String input;
+				while ((input = br.readLine()) != null) { // Examine each line of the input
+					input = input.trim();
+					if (!input.isEmpty()) {
+						add(FeatureRecord.parse(input));
+					}
+				}
+			}
+			finish();
 		}
 		
-		Iterator<String> inputListIterator = inputList.iterator();
-		while (inputListIterator.hasNext()) { // Examine each line of the input
-			input = inputListIterator.next().trim();
-			features = new ArrayList<String>(Arrays.asList(input.split(SPLIT_SYMBOL))); // Convert the line into a list of words
-			key = features.get(0); // The first word represents the source, if the current line was produced from the query then the it is "QUERY" otherwise it is the URL of the webpage
-			features.remove(0); // Pop off the source we just read
-			type = features.get(0); // The type is either "NOUN" or "VERB"
-			features.remove(0); // Pop off the type we just read
-			key = key + " " + type; // The concatenation of the source and the type is the key
-			if (key.contains("QUERY")) { // Only the first two lines at the input corresponds to the query
-				if (type.equals("VERB")) { // If the current line contains the string of verb features from the query then save it into queryVerbList
-					queryVerbList = listUnion(queryVerbList, features);
+		// Takes the next record of the input, which is either a query record or a webpage record
+		void add(FeatureRecord record) throws IOException {
+			if (record.isQuery()) {
+				if (this.pages) {
+					throw new IOException("The query features have to come before the webpage features: " + record.url);
 				}
-				if (type.equals("NOUN")) { // If the current line contains the string of noun features from the query then save it into queryNounList
-					queryNounList = listUnion(queryNounList, features);
+				if (record.type.equals(FeatureRecord.VERB)) { // If the current line contains the string of verb features from the query then add it to queryVerbs
+					this.queryVerbs = this.queryVerbs.union(FeatureSet.of(record.terms, this.dictionary));
 				}
-			} else { // If we reach here it means the current line was produced from a URL in the search result
-				if (type.equals("VERB")) { // If the current line contains the string of verb features from a URL then save its key into VerbKeyList and the corresponding verb into VerbValueList
-					verbKeyList.add(key);
-					verbValueList.add(features);
+				if (record.type.equals(FeatureRecord.NOUN)) { // If the current line contains the string of noun features from the query then add it to queryNouns
+					this.queryNouns = this.queryNouns.union(FeatureSet.of(record.terms, this.dictionary));
 				}
-				if (type.equals("NOUN")) { // If the current line contains the string of noun features from a URL then save its key into NounKeyList and the corresponding noun into NounValueList
-					nounKeyList.add(key);
-					nounValueList.add(features);
+			} else { // If we reach here it means the current line was produced from a URL in the search result
+				this.pages = true;
+				int slot = record.type.equals(FeatureRecord.NOUN) ? 0 : 1;
+				FeatureSet[] sets = this.waiting.remove(record.url);
+				if (sets == null) { // The first line of this URL waits for the other one
+					sets = new FeatureSet[2];
+					sets[slot] = FeatureSet.of(record.terms, this.dictionary);
+					this.waiting.put(record.url, sets);
+				} else {
+					sets[slot] = FeatureSet.of(record.terms, this.dictionary);
+					page(record.url, sets);
 				}
 			}
 		}
 		
-		List<String> verbTwo, nounTwo;
-		List<Double> result = new ArrayList<Double>();
-		for (int i = 0; i < verbValueList.size(); i++) { // Grab the verb and noun list for each URL
-			verbTwo = verbValueList.get(i);
-			nounTwo = nounValueList.get(i);
-			
-			// Compare the verb and noun list for each URL against the ones from the query
-			result.add(Math.max(((double) listIntersect(queryNounList, nounTwo).size()) / Math.min(queryNounList.size(), nounTwo.size()), ((double) listIntersect(queryVerbList, verbTwo).size()) / listUnion(queryVerbList, verbTwo).size()));
+		// Hands over the webpages still missing a line once the input has ended
+		void finish() throws IOException {
+			for (Map.Entry<String, FeatureSet[]> entry : this.waiting.entrySet()) {
+				page(entry.getKey(), entry.getValue());
+			}
+			this.waiting.clear();
 		}
-		return result;
-	}
-	
-	// Opens and reads text from a txt file
-	// Input is the txt file path
-	// Output is a list structure containing each line in the text file
-	private static List<String> readTxt(String path) throws IOException {
-		List<String> input = new ArrayList<String>();
-		String line;
 		
-		InputStream is = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
-		
-		try {
-			is = new FileInputStream(path);
-			isr = new InputStreamReader(is);
-			br = new BufferedReader(isr);
-			
-			while ((line = br.readLine()) != null) {
-				input.add(line);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			if (is != null) {
-				is.close();
-			}
-			if (isr != null) {
-				isr.close();
-			}
-			if (br != null) {
-				br.close();
-			}
+		private void page(String url, FeatureSet[] sets) throws IOException {
+			page(url, sets[0] == null ? FeatureSet.EMPTY : sets[0], sets[1] == null ? FeatureSet.EMPTY : sets[1]);
 		}
-		return input;
+	}
+	
+	// Compares the features of one URL against the ones from the query
+	// Input is the query noun and verb lists followed by the webpage noun and verb lists
+	// Output is the larger of the noun overlap and the verb similarity
+	public static double score(List<String> queryNounList, List<String> queryVerbList, List<String> nounTwo, List<String> verbTwo) {
+		TermDictionary dictionary = new TermDictionary();
+		return score(FeatureSet.of(queryNounList, dictionary), FeatureSet.of(queryVerbList, dictionary), FeatureSet.of(nounTwo, dictionary), FeatureSet.of(verbTwo, dictionary));
+	}
+	
+	// Compares the features of one URL against the ones from the query, the sets of the query only need to be made once for all URLs
+	// The noun overlap is the number of shared nouns over the length of the shorter noun list, the verb similarity is the number of shared verbs over the number of verbs in either list
+	// Input is the query noun and verb sets followed by the webpage noun and verb sets
+	// Output is the larger of the noun overlap and the verb similarity
+	public static double score(FeatureSet queryNouns, FeatureSet queryVerbs, FeatureSet nounTwo, FeatureSet verbTwo) {
+		int sharedVerbs = queryVerbs.intersectionSize(verbTwo);
+		return Math.max(((double) queryNouns.intersectionSize(nounTwo)) / Math.min(queryNouns.size(), nounTwo.size()), ((double) sharedVerbs) / (queryVerbs.distinct() + verbTwo.distinct() - sharedVerbs));
 	}
 	
 	// Writes a string to a txt file
@@ -135,7 +189,7 @@ public class SemanticDistance {
 		BufferedWriter bw = null;
 		try {
 			os = new FileOutputStream(path);
-			osw = new OutputStreamWriter(os);
+			osw = new OutputStreamWriter(os, "UTF-8");
 			bw = new BufferedWriter(osw);
 			
 			bw.write(output);
@@ -147,31 +201,4 @@ public class SemanticDistance {
 			e.printStackTrace();
 		}
 	}
-	
-	// Takes the intersection between two lists
-	// Input are two lists
-	// Output is a single list containing the intersection
-	private static List<String> listIntersect(List<String> listOne, List<String> listTwo) {
-		List<String> temp = new ArrayList<String>();
-		for (int o = 0; o < listOne.size(); o++) {
-			if (!temp.contains(listOne.get(o)) && listTwo.contains(listOne.get(o))) {
-				temp.add(listOne.get(o));
-			}
-		}
-		return temp;
-	}
-	
-	// Takes the union between two lists
-	// Input are two lists
-	// Output is a single list containing the union
-	private static List<String> listUnion(List<String> listOne, List<String> listTwo) {
-		List<String> temp = new ArrayList<String>();
-		listOne.addAll(listTwo);
-		for (int o = 0; o < listOne.size(); o++) {
-			if (!temp.contains(listOne.get(o))) {
-				temp.add(listOne.get(o));
-			}
-		}
-		return temp;
-	}
 }
\ No newline at end of file
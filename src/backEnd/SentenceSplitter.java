@@ -0,0 +1,129 @@
+package backEnd;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// The SentenceSplitter class splits webpage text into sentences in a single pass over the characters
+// The sentence buffer is reused, so apart from the sentences handed out nothing is allocated per character
+// A splitter keeps the unfinished sentence between calls to feed, so it is not thread-safe
+public class SentenceSplitter {
+	private static final int READ_BUFFER_SIZE = 8192;
+	
+	// Receives each sentence, the sequence is only valid until the callback returns
+	public interface Callback {
+		void sentence(CharSequence sentence);
+	}
+	
+	// The unfinished sentence is buffer[start..end)
+	private char[] buffer = new char[256];
+	private int start;
+	private int end;
+	
+	private CharBuffer readBuffer; // Reused by split(Reader, Callback)
+	
+	// Splits a whole text, an unfinished sentence at the end of the text is dropped
+	// Input is the text and the callback receiving the sentences
+	public void split(CharSequence text, Callback callback) {
+		reset();
+		feed(text, callback);
+		reset();
+	}
+	
+	// Splits everything that can be read from a reader, an unfinished sentence at the end is dropped
+	// Input is the reader and the callback receiving the sentences
+	public void split(Reader in, Callback callback) throws IOException {
+		if (this.readBuffer == null) {
+			this.readBuffer = CharBuffer.allocate(READ_BUFFER_SIZE);
+		}
+		reset();
+		while (in.read(this.readBuffer) != -1) {
+			this.readBuffer.flip();
+			feed(this.readBuffer, callback);
+			this.readBuffer.clear();
+		}
+		reset();
+	}
+	
+	// Splits the next part of a text, the unfinished sentence at the end is kept for the next call
+	// Input is the next part of the text and the callback receiving the sentences
+	public void feed(CharSequence text, Callback callback) {
+		int length = text.length();
+		char letter;
+		for (int idx = 0; idx < length; idx++) { // Parse the text one character at a time
+			letter = text.charAt(idx);
+			if (letter == '!' || letter == '?' || letter == '.') { // If we encounter a end of sentence punctuation (! ? .) then hand the sentence buffer content to the callback
+				trim();
+				append(letter);
+				callback.sentence(CharBuffer.wrap(this.buffer, this.start, this.end - this.start));
+				this.start = 0;
+				this.end = 0;
+			} else if (Character.isLetterOrDigit(letter)) { // If it is a letter or digit then we accumulate the character in a sentence buffer
+				append(letter);
+			} else if (Character.isWhitespace(letter)) { // If it is any whitespace then we add a space in a sentence buffer
+				append(' ');
+			} else {
+				trim(); // Otherwise we just cut off any leading/trailing whitespace and add the character to the sentence buffer
+				append(letter);
+			}
+		}
+	}
+	
+	// Drops the unfinished sentence
+	public void reset() {
+		this.start = 0;
+		this.end = 0;
+	}
+	
+	// Cuts off the same leading/trailing characters as String.trim
+	private void trim() {
+		while (this.start < this.end && this.buffer[this.start] <= ' ') {
+			this.start++;
+		}
+		while (this.end > this.start && this.buffer[this.end - 1] <= ' ') {
+			this.end--;
+		}
+	}
+	
+	private void append(char letter) {
+		if (this.end == this.buffer.length) {
+			if (this.start > 0) { // Reuse the space left by trimmed leading whitespace first
+				System.arraycopy(this.buffer, this.start, this.buffer, 0, this.end - this.start);
+				this.end -= this.start;
+				this.start = 0;
+			} else {
+				this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+			}
+		}
+		this.buffer[this.end++] = letter;
+	}
+	
+	// Measures the splitting throughput on a txt file, for example dummyText/webpages.txt
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) { // Test if the number of command line arguments is correct
+			System.out.println("java SentenceSplitter <textfile path> <repetitions>");
+			return;
+		}
+		StringBuilder text = new StringBuilder();
+		for (String line : LineReader.readLines(args[0])) {
+			text.append(line).append('\n');
+		}
+		int repetitions = Integer.parseInt(args[1]);
+		final int[] count = new int[1];
+		Callback counter = new Callback() {
+			public void sentence(CharSequence sentence) {
+				count[0]++;
+			}
+		};
+		SentenceSplitter splitter = new SentenceSplitter();
+		double megabytes = text.length() * 2.0 / (1024 * 1024); // Java characters take two bytes
+		for (int r = 0; r < repetitions; r++) {
+			count[0] = 0;
+			long begin = System.nanoTime();
+			splitter.split(text, counter);
+			double seconds = (System.nanoTime() - begin) / 1e9;
+			System.out.println(count[0] + " sentences in " + seconds + " s, " + (megabytes / seconds) + " MB/s");
+		}
+	}
+}
\ No newline at end of file
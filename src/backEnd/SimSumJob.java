@@ -0,0 +1,273 @@
+package backEnd;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+// The SimSumJob class builds the MapReduce job running the four backEnd modules on any number of queries at once
+// WebpageToTxt, Parser and Decomposer are mappers chained inside each map task, and SemanticDistance is the reducer
+// Every record is keyed by its query and its URL, the records of one query all go to the same reduce call where the query records sort before the webpage records
+// The input records are the lines of the query files, each paired with the ID of its query, which must not contain the split token
+public class SimSumJob {
+	private static final String SPLIT_SYMBOL = "`"; // Default split token
+	
+	// Builds the job going from the lines of the query files to the scores
+	// Input is the fetcher for the webpages (null to fetch them one at a time through WebpageToTxt), a parser with the tagger to share and a decomposer with the options to use
+	// Output is the job, its output is the scores keyed by query ID
+	public static MapReduceJob<KeyValue<String>, FeatureRecord, ScoreRecord> create(PageFetcher fetcher, Parser parser, Decomposer decomposer) {
+		return create(new PageMapper(fetcher, null), parser, decomposer);
+	}
+	
+	// Builds the same job, and starts downloading the webpages of its inputs right away on the threads of the fetcher
+	// The map tasks then only wait for the webpage of their line and spend the map slots on parsing and decomposing, each distinct URL is downloaded once
+	// Input is the fetcher, a parser and a decomposer like for create, and the inputs the job will be run on
+	public static MapReduceJob<KeyValue<String>, FeatureRecord, ScoreRecord> create(PageFetcher fetcher, Parser parser, Decomposer decomposer, List<KeyValue<String>> inputs) {
+		Set<String> lines = new LinkedHashSet<String>();
+		for (KeyValue<String> input : inputs) {
+			String line = input.value.trim();
+			if (!line.isEmpty() && !line.contains("QUERY")) {
+				lines.add(line);
+			}
+		}
+		List<String> urls = new ArrayList<String>(lines);
+		List<Future<PageRecord>> pending = fetcher.submitAll(urls);
+		Map<String, Future<PageRecord>> fetched = new HashMap<String, Future<PageRecord>>();
+		for (int u = 0; u < urls.size(); u++) {
+			fetched.put(urls.get(u), pending.get(u));
+		}
+		return create(new PageMapper(fetcher, fetched), parser, decomposer);
+	}
+	
+	private static MapReduceJob<KeyValue<String>, FeatureRecord, ScoreRecord> create(PageMapper pages, Parser parser, Decomposer decomposer) {
+		Mapper<KeyValue<String>, FeatureRecord> parse = new ChainMapper<KeyValue<String>, PageRecord, FeatureRecord>(pages, new ParseMapper(parser));
+		return job("simsum", new ChainMapper<KeyValue<String>, FeatureRecord, FeatureRecord>(parse, new DecomposeMapper(decomposer)));
+	}
+	
+	// Builds the job going from the lines of keyword files (the Parser output format) to the scores, skipping the fetch and parse modules
+	public static MapReduceJob<KeyValue<String>, FeatureRecord, ScoreRecord> features(Decomposer decomposer) {
+		return job("simsum-features", new ChainMapper<KeyValue<String>, FeatureRecord, FeatureRecord>(new KeywordMapper(), new DecomposeMapper(decomposer)));
+	}
+	
+	private static MapReduceJob<KeyValue<String>, FeatureRecord, ScoreRecord> job(String name, Mapper<KeyValue<String>, FeatureRecord> mapper) {
+		MapReduceJob<KeyValue<String>, FeatureRecord, ScoreRecord> job = new MapReduceJob<KeyValue<String>, FeatureRecord, ScoreRecord>(name, mapper, new DistanceReducer(), new FeatureCodec());
+		job.setCombiner(new QueryCombiner());
+		job.setPartitioner(new QueryPartitioner());
+		return job;
+	}
+	
+	// Pairs each line of a query file with the query ID
+	public static List<KeyValue<String>> inputs(String query, List<String> lines) {
+		List<KeyValue<String>> inputs = new ArrayList<KeyValue<String>>();
+		for (String line : lines) {
+			inputs.add(new KeyValue<String>(query, line));
+		}
+		return inputs;
+	}
+	
+	// Output is the key of a record, the query records have an empty URL so they sort first
+	public static String key(String query, String url) {
+		return query + SPLIT_SYMBOL + url;
+	}
+	
+	// Output is the key of a record of the query
+	private static String key(String query, PageRecord page) {
+		return key(query, page.isQuery() ? "" : page.url);
+	}
+	
+	// First module, extracts the sentences of the webpage on a line of the query file
+	// Webpages that could not be fetched are passed on without sentences like in Pipeline, so they score NaN
+	static class PageMapper implements Mapper<KeyValue<String>, PageRecord> {
+		private PageFetcher fetcher;
+		private Map<String, Future<PageRecord>> fetched; // The webpages already being downloaded by the fetcher, null to fetch each one on the map thread
+		
+		PageMapper(PageFetcher fetcher, Map<String, Future<PageRecord>> fetched) {
+			this.fetcher = fetcher;
+			this.fetched = fetched;
+		}
+		
+		public void map(KeyValue<String> input, Emitter<PageRecord> out) throws Exception {
+			String line = input.value.trim();
+			if (line.isEmpty()) {
+				return;
+			}
+			PageRecord page;
+			if (line.contains("QUERY")) { // If the current line is the original query then we just pass it on
+				page = PageRecord.parse(line);
+			} else if (this.fetched != null && this.fetched.containsKey(line)) {
+				page = PageFetcher.get(this.fetched.get(line));
+			} else if (this.fetcher != null) {
+				page = this.fetcher.fetch(line);
+			} else {
+				page = WebpageToTxt.webPageRecord(line);
+			}
+			if (page.isFailed()) {
+				System.err.println("Could not fetch " + page.url + ": " + page.error);
+			}
+			out.emit(key(input.key, page), page);
+		}
+	}
+	
+	// Second module, groups the nouns and verbs of a webpage on a parser of its own, all parsers share the tagger of the given one
+	static class ParseMapper implements Mapper<KeyValue<PageRecord>, FeatureRecord> {
+		private Parser parser;
+		
+		ParseMapper(Parser parser) {
+			this.parser = parser;
+		}
+		
+		public void map(KeyValue<PageRecord> input, Emitter<FeatureRecord> out) throws Exception {
+			for (FeatureRecord record : this.parser.copy().parsePage(input.value)) {
+				out.emit(input.key, record);
+			}
+		}
+	}
+	
+	// Reads the lines of a keyword file, the query ID of the input is kept in the key
+	static class KeywordMapper implements Mapper<KeyValue<String>, FeatureRecord> {
+		public void map(KeyValue<String> input, Emitter<FeatureRecord> out) throws Exception {
+			String line = input.value.trim();
+			if (!line.isEmpty()) {
+				FeatureRecord record = FeatureRecord.parse(line);
+				out.emit(key(input.key, record.isQuery() ? "" : record.url), record);
+			}
+		}
+	}
+	
+	// Third module, expands the keywords on a copy of the given decomposer
+	// The query time budget of the decomposer counts from the first record of each query, so a query gets the same budget as when it is scored on its own however large the job is
+	static class DecomposeMapper implements Mapper<KeyValue<FeatureRecord>, FeatureRecord> {
+		private Decomposer decomposer;
+		private ConcurrentMap<String, Long> deadlines = new ConcurrentHashMap<String, Long>(); // Deadline of each query ID, the map tasks share the mapper
+		
+		DecomposeMapper(Decomposer decomposer) {
+			this.decomposer = decomposer;
+		}
+		
+		public void map(KeyValue<FeatureRecord> input, Emitter<FeatureRecord> out) throws Exception {
+			out.emit(input.key, this.decomposer.copy().decompose(input.value, deadline(input.key)));
+		}
+		
+		// Output is the deadline of the query of a record key, starting its clock if this is its first record
+		private long deadline(String key) {
+			String query = key.substring(0, key.indexOf(SPLIT_SYMBOL));
+			Long deadline = this.deadlines.get(query);
+			if (deadline == null) {
+				Long started = this.decomposer.queryDeadline();
+				deadline = this.deadlines.putIfAbsent(query, started);
+				if (deadline == null) {
+					deadline = started;
+				}
+			}
+			return deadline;
+		}
+	}
+	
+	// Merges the query records of each type written by a map task into one record, the webpage records are passed on as they are
+	// The query sets are unions, so merging them early gives the same scores
+	static class QueryCombiner implements Reducer<FeatureRecord, FeatureRecord> {
+		public void reduce(String key, Iterator<FeatureRecord> values, Emitter<FeatureRecord> out) throws Exception {
+			Map<String, Set<String>> queryTerms = new LinkedHashMap<String, Set<String>>(); // The terms of each type in the order they were first seen
+			Map<String, Boolean> truncated = new LinkedHashMap<String, Boolean>();
+			String url = null;
+			while (values.hasNext()) {
+				FeatureRecord record = values.next();
+				if (!record.isQuery()) {
+					out.emit(key, record);
+					continue;
+				}
+				url = record.url;
+				Set<String> terms = queryTerms.get(record.type);
+				if (terms == null) {
+					terms = new LinkedHashSet<String>();
+					queryTerms.put(record.type, terms);
+					truncated.put(record.type, false);
+				}
+				terms.addAll(record.terms);
+				truncated.put(record.type, truncated.get(record.type) || record.truncated);
+			}
+			for (Map.Entry<String, Set<String>> type : queryTerms.entrySet()) {
+				out.emit(key, new FeatureRecord(url, type.getKey(), new ArrayList<String>(type.getValue()), truncated.get(type.getKey())));
+			}
+		}
+	}
+	
+	// Last module, compares the webpages of a query against the query like SemanticDistance
+	static class DistanceReducer implements Reducer<FeatureRecord, ScoreRecord> {
+		public void reduce(String query, Iterator<FeatureRecord> values, Emitter<ScoreRecord> out) throws Exception {
+			final List<ScoreRecord> scores = new ArrayList<ScoreRecord>();
+			SemanticDistance.PageReader reader = new SemanticDistance.PageReader() {
+				protected void page(String url, FeatureSet nounTwo, FeatureSet verbTwo) {
+					scores.add(new ScoreRecord(url, SemanticDistance.score(this.queryNouns, this.queryVerbs, nounTwo, verbTwo)));
+				}
+			};
+			while (values.hasNext()) {
+				reader.add(values.next());
+			}
+			reader.finish();
+			for (ScoreRecord score : scores) {
+				out.emit(query, score);
+			}
+		}
+	}
+	
+	// Sends all records of a query to the same reduce call
+	static class QueryPartitioner implements Partitioner {
+		public int partition(String key, int partitions) {
+			return (group(key).hashCode() & Integer.MAX_VALUE) % partitions;
+		}
+		
+		public String group(String key) {
+			int split = key.indexOf(SPLIT_SYMBOL);
+			return split < 0 ? key : key.substring(0, split);
+		}
+	}
+	
+	// Writes a feature record to the spill files, the truncated flag and the weights included
+	static class FeatureCodec implements Codec<FeatureRecord> {
+		public void write(DataOutput out, FeatureRecord record) throws IOException {
+			out.writeUTF(record.url);
+			out.writeUTF(record.type);
+			out.writeBoolean(record.truncated);
+			out.writeInt(record.terms.size());
+			for (String term : record.terms) {
+				out.writeUTF(term);
+			}
+			out.writeBoolean(record.weights != null);
+			if (record.weights != null) {
+				for (long weight : record.weights) {
+					out.writeLong(weight);
+				}
+			}
+		}
+		
+		public FeatureRecord read(DataInput in) throws IOException {
+			String url = in.readUTF();
+			String type = in.readUTF();
+			boolean truncated = in.readBoolean();
+			int count = in.readInt();
+			List<String> terms = new ArrayList<String>(count);
+			for (int t = 0; t < count; t++) {
+				terms.add(in.readUTF());
+			}
+			long[] weights = null;
+			if (in.readBoolean()) {
+				weights = new long[count];
+				for (int t = 0; t < count; t++) {
+					weights[t] = in.readLong();
+				}
+			}
+			return new FeatureRecord(url, type, terms, truncated, weights);
+		}
+	}
+}
\ No newline at end of file
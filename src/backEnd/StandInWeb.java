@@ -0,0 +1,145 @@
+package backEnd;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// The StandInWeb class is a local HTTP server that stands in for the internet
+// It serves the sample pages from a webpages txt file so the fetching code can be tried without internet access
+// A page on http://host/path is served on http://127.0.0.1:port/host/path
+public class StandInWeb {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private HttpServer server;
+	private ExecutorService threads;
+	private Map<String, byte[]> pages; // HTML of each page by local path
+	private volatile int delay; // Milliseconds to wait before answering, to imitate a slow network
+	
+	public StandInWeb(int port) throws IOException {
+		this.pages = new HashMap<String, byte[]>();
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		this.server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				serve(exchange);
+			}
+		});
+		this.threads = Executors.newCachedThreadPool();
+		this.server.setExecutor(this.threads); // Answer many requests at once like real servers do
+	}
+	
+	// Loads the sample pages
+	// Input is a list of lines in the webpages txt format, the query line is ignored
+	public void addPages(List<String> lines) {
+		for (String line : lines) {
+			PageRecord page = PageRecord.parse(line);
+			if (!page.isQuery()) {
+				addPage(page.url, toHtml(page));
+			}
+		}
+	}
+	
+	// Serves the given HTML for the given original URL
+	public void addPage(String url, String html) {
+		synchronized (this.pages) {
+			this.pages.put(localPath(url), html.getBytes(UTF8));
+		}
+	}
+	
+	public void setDelay(int delay) {
+		this.delay = delay;
+	}
+	
+	public void start() {
+		this.server.start();
+	}
+	
+	public void stop() {
+		this.server.stop(0);
+		this.threads.shutdown();
+	}
+	
+	// Converts an original URL into the URL of the same page on this server
+	public String localUrl(String url) {
+		return "http://127.0.0.1:" + this.server.getAddress().getPort() + localPath(url);
+	}
+	
+	private static String localPath(String url) {
+		try {
+			URL original = new URL(url);
+			return "/" + original.getHost() + original.getPath();
+		} catch (IOException e) {
+			return "/" + url;
+		}
+	}
+	
+	// Wraps the sentences of a page into a minimal article so the extractor keeps them
+	private static String toHtml(PageRecord page) {
+		StringBuilder html = new StringBuilder("<html><head><title>").append(page.url).append("</title></head><body><div><p>");
+		for (String sentence : page.sentences) {
+			html.append(sentence.replace("&", "&amp;").replace("<", "&lt;")).append(' ');
+		}
+		return html.append("</p></div></body></html>").toString();
+	}
+	
+	private void serve(HttpExchange exchange) throws IOException {
+		try {
+			if (this.delay > 0) {
+				Thread.sleep(this.delay);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		byte[] body;
+		synchronized (this.pages) {
+			body = this.pages.get(exchange.getRequestURI().getPath());
+		}
+		OutputStream os = exchange.getResponseBody();
+		try {
+			if (body == null) {
+				exchange.sendResponseHeaders(404, -1);
+			} else if (etag(body).equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) { // The client already has this version of the page
+				exchange.sendResponseHeaders(304, -1);
+			} else {
+				exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+				exchange.getResponseHeaders().set("ETag", etag(body));
+				exchange.sendResponseHeaders(200, body.length);
+				os.write(body);
+			}
+		} finally {
+			os.close();
+		}
+	}
+	
+	private static String etag(byte[] body) {
+		return "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) { // Test if the number of command line arguments is correct
+			System.out.println("java StandInWeb <webpages textfile path> <port>");
+			return;
+		}
+		StandInWeb web = new StandInWeb(Integer.parseInt(args[1]));
+		List<String> lines = LineReader.readLines(args[0]);
+		web.addPages(lines);
+		web.start();
+		for (String line : lines) { // Print where each page can be found
+			PageRecord page = PageRecord.parse(line);
+			if (!page.isQuery()) {
+				System.out.println(web.localUrl(page.url));
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package backEnd;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+// The StopWords class holds the words that are ignored in the computation
+// The words are kept in a hash set, so a word is only ignored if it is exactly one of them
+// The legacy mode searches the word inside the space separated list instead, as the Parser used to do,
+// which also ignores any word found inside the list such as "hen" in "when", "ether" in "whether" or "ave" in "have"
+public class StopWords {
+	// This is the default list of stop words
+	public static final String DEFAULT_LIST = "i me my myself we us our ours ourselves you your yours yourself yourselves he him his himself she her hers herself it its itself they them their theirs themselves what which who whom this that these those am is are was were be been being have has had having do does did doing will would shall should can could may might must ought im youre hes shes its were theyre ive youve weve theyve id youd hed shed wed theyd ill youll hell shell well theyll isnt arent wasnt werent hasnt havent hadnt doesnt dont didnt wont wouldnt shant shouldnt cant cannot couldnt mustnt lets thats whos whats heres theres whens wheres whys hows darent neednt oughtnt mightnt a an the and but if or because as until while of at by for with about against between into through during before after above below to from up down in out on off over under again further then once here there when where why how all any both each few more most other some such no nor not only own same so than too very every least less many now ever never also just put whether since another however one two three four five first second new old high long";
+	
+	public static final StopWords DEFAULT = new StopWords(DEFAULT_LIST, false);
+	public static final StopWords LEGACY = new StopWords(DEFAULT_LIST, true);
+	
+	private Set<String> words;
+	private String list; // Only used in legacy mode
+	private boolean legacy;
+	
+	// Input is the stop words separated by whitespace and whether to use the old substring matching
+	public StopWords(String list, boolean legacy) {
+		Set<String> words = new HashSet<String>();
+		for (String word : list.trim().split("\\s+")) {
+			if (!word.isEmpty()) {
+				words.add(word.toLowerCase());
+			}
+		}
+		this.words = Collections.unmodifiableSet(words);
+		this.list = list;
+		this.legacy = legacy;
+	}
+	
+	// Reads a stop word file
+	// Input is the txt file path, the file holds the stop words separated by spaces or newlines, lines starting with # are comments
+	// Output is the stop word set
+	public static StopWords load(String path) throws IOException {
+		StringBuilder list = new StringBuilder();
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(path), Charset.forName("UTF-8")));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (!line.trim().startsWith("#")) {
+					list.append(line).append(' ');
+				}
+			}
+		} finally {
+			br.close();
+		}
+		return new StopWords(list.toString(), false);
+	}
+	
+	// Tests if a word is ignored
+	// Input is the word in lower case
+	// Output is true if the word is a stop word, an empty word is always ignored
+	public boolean contains(String word) {
+		if (this.legacy) {
+			return this.list.contains(word);
+		}
+		return word.isEmpty() || this.words.contains(word);
+	}
+	
+	public boolean isLegacy() {
+		return this.legacy;
+	}
+	
+	public int size() {
+		return this.words.size();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package backEnd;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+// The StoreFiles class holds the file helpers of the stores kept on disk, PageCache and ArtifactStore
+// Each entry is named after the SHA-1 hash of its URL, and every file is written to a temporary file of its own and then moved into place,
+// so readers never see half a file and two threads saving the same URL do not write into one file
+public class StoreFiles {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	// Output is the SHA-1 hash of the text in hexadecimal
+	public static String sha1(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(UTF8));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // Every Java platform has SHA-1
+		}
+	}
+	
+	public static Properties readMeta(File file) throws IOException {
+		Properties meta = new Properties();
+		InputStream is = new FileInputStream(file);
+		try {
+			meta.load(is);
+		} finally {
+			is.close();
+		}
+		return meta;
+	}
+	
+	public static void writeMeta(File file, Properties meta) throws IOException {
+		File temp = temp(file);
+		try {
+			OutputStream os = new FileOutputStream(temp);
+			try {
+				meta.store(os, null);
+			} finally {
+				os.close();
+			}
+			replace(temp, file);
+		} finally {
+			temp.delete(); // Already moved unless the write failed, such as on a full disk
+		}
+	}
+	
+	// Output is a new temporary file next to the given file, each writer gets its own
+	public static File temp(File file) throws IOException {
+		return File.createTempFile(file.getName() + ".", ".tmp", file.getParentFile());
+	}
+	
+	// Moves a finished temporary file into place so readers never see half a file
+	public static void replace(File temp, File file) throws IOException {
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) {
+				throw new IOException("Cannot write " + file);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package backEnd;
+
+import edu.mit.jwi.item.POS;
+import edu.mit.jwi.item.Pointer;
+
+// The SynsetGraph interface is the part of WordNet the Decomposer walks through
+// Synsets are named by int IDs, each implementation decides how the IDs are given out
+// Relations are named by their position in RELATIONS
+public interface SynsetGraph {
+	// The pointers followed from each synset, in the order the Decomposer follows them
+	Pointer[] RELATIONS = {Pointer.HYPERNYM, Pointer.HYPONYM, Pointer.HOLONYM_MEMBER, Pointer.HOLONYM_PART, Pointer.HOLONYM_SUBSTANCE, Pointer.MERONYM_MEMBER, Pointer.MERONYM_PART, Pointer.MERONYM_SUBSTANCE};
+	
+	// Finds the synset of the first sense of a term
+	// Input is the term and its word type
+	// Output is the synset ID, or -1 if the term is not in the dictionary
+	int lookup(String term, POS pos);
+	
+	// Output is the number of synsets related to a synset through the relation at the given position in RELATIONS
+	int relatedCount(int synset, int relation);
+	
+	// Output is the ID of the related synset at the given index
+	int related(int synset, int relation, int index);
+	
+	// Output is the number of words in a synset
+	int wordCount(int synset);
+	
+	// Output is the lemma of the word at the given index
+	String word(int synset, int index);
+	
+	// Output is true if many threads can read the graph at the same time without locking it
+	boolean isThreadSafe();
+}
\ No newline at end of file
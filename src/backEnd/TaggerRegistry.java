@@ -0,0 +1,103 @@
+package backEnd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+// The TaggerRegistry class loads each POS tagger model once per process and hands the same tagger to every caller
+// A model is only loaded the first time it is asked for, and a second thread asking while it loads waits for the same load
+// The MaxentTagger is thread-safe, so the tagger handed out can be used from any number of threads
+public class TaggerRegistry {
+	private static final ConcurrentMap<String, FutureTask<Model>> MODELS = new ConcurrentHashMap<String, FutureTask<Model>>();
+	
+	private TaggerRegistry() {
+	}
+	
+	// A loaded model with the cost of loading it
+	public static class Model {
+		public final String path;
+		public final MaxentTagger tagger;
+		public final long loadMillis; // Time taken to load the model
+		public final long residentBytes; // Growth of the used heap during the load, an estimate of the memory the model keeps
+		
+		private Model(String path, MaxentTagger tagger, long loadMillis, long residentBytes) {
+			this.path = path;
+			this.tagger = tagger;
+			this.loadMillis = loadMillis;
+			this.residentBytes = residentBytes;
+		}
+		
+		public String toString() {
+			return this.path + " loaded in " + this.loadMillis + " ms, about " + (this.residentBytes / (1024 * 1024)) + " MB";
+		}
+	}
+	
+	// Returns the tagger for a model, loading it if this is the first time
+	// Input is the path of the model file
+	// Output is the shared tagger
+	public static MaxentTagger get(String path) throws IOException {
+		return model(path).tagger;
+	}
+	
+	// Returns a model and its load metrics, loading it if this is the first time
+	public static Model model(final String path) throws IOException {
+		FutureTask<Model> load = MODELS.get(path);
+		if (load == null) {
+			FutureTask<Model> created = new FutureTask<Model>(new Callable<Model>() {
+				public Model call() {
+					return load(path);
+				}
+			});
+			load = MODELS.putIfAbsent(path, created);
+			if (load == null) { // This thread won, it does the load while the others wait on the same task
+				load = created;
+				load.run();
+			}
+		}
+		try {
+			return load.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading tagger model " + path, e);
+		} catch (ExecutionException e) {
+			MODELS.remove(path, load); // Let the next caller try again
+			throw new IOException("Cannot load tagger model " + path, e.getCause());
+		}
+	}
+	
+	// The metrics of every model loaded so far
+	public static List<Model> loaded() {
+		List<Model> models = new ArrayList<Model>();
+		for (FutureTask<Model> load : MODELS.values()) {
+			if (load.isDone()) {
+				try {
+					models.add(load.get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					// failed loads are not reported
+				}
+			}
+		}
+		return models;
+	}
+	
+	private static Model load(String path) {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+		long begin = System.currentTimeMillis();
+		MaxentTagger tagger = new MaxentTagger(path);
+		long loadMillis = System.currentTimeMillis() - begin;
+		System.gc();
+		long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+		return new Model(path, tagger, loadMillis, Math.max(0, usedAfter - usedBefore));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package backEnd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// The TermDictionary class gives each distinct term a small int ID, counting up from 0 in the order the terms are first seen
+// Equal terms always get the same ID, so later stages can compare IDs instead of strings
+// A dictionary can be shared by threads, IDs are never reused or removed, so it only lives as long as the scoring call it belongs to
+public class TermDictionary {
+	private ConcurrentMap<String, Integer> ids;
+	private List<String> terms; // Term of each ID
+	private long chars; // Total length of the terms, for the memory estimate
+	
+	public TermDictionary() {
+		this.ids = new ConcurrentHashMap<String, Integer>();
+		this.terms = new ArrayList<String>();
+	}
+	
+	// Looks up the ID of a term, adding the term if it is new
+	// Input is the term
+	// Output is its ID
+	public int id(String term) {
+		Integer id = this.ids.get(term);
+		if (id == null) {
+			synchronized (this) {
+				id = this.ids.get(term);
+				if (id == null) {
+					id = this.terms.size();
+					this.terms.add(term);
+					this.chars += term.length();
+					this.ids.put(term, id);
+				}
+			}
+		}
+		return id;
+	}
+	
+	// Looks up the ID of a term without adding it
+	// Output is the ID, or -1 if the term was never seen
+	public int find(String term) {
+		Integer id = this.ids.get(term);
+		return id == null ? -1 : id;
+	}
+	
+	// Output is the term with the given ID
+	public synchronized String term(int id) {
+		return this.terms.get(id);
+	}
+	
+	// Output is the same term as the input, the first copy of it that was added, so equal terms share one String object
+	public String intern(String term) {
+		return term(id(term));
+	}
+	
+	public synchronized int size() {
+		return this.terms.size();
+	}
+	
+	// Estimates the heap used by the dictionary: the strings, the map entries and the boxed IDs
+	public synchronized long memoryBytes() {
+		return this.chars * 2 + this.terms.size() * (40L + 32 + 16 + 8);
+	}
+	
+	public String toString() {
+		return "TermDictionary terms=" + size() + " bytes=" + memoryBytes();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package backEnd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// The TopKRanker class keeps the k highest scores out of any number of scores, in a heap holding at most k records
+// The lowest kept score sits at the top of the heap, so a new score only has to beat that one to get in
+// A missing score (NaN) ranks below every other score, and of two equal scores the one offered first ranks higher
+public class TopKRanker {
+	private int k;
+	private PriorityQueue<Entry> heap;
+	private long offered;
+	
+	// A kept score and the order it was offered in
+	private static class Entry implements Comparable<Entry> {
+		final ScoreRecord record;
+		final long order;
+		
+		Entry(ScoreRecord record, long order) {
+			this.record = record;
+			this.order = order;
+		}
+		
+		// The entry that ranks lower comes first
+		public int compareTo(Entry other) {
+			int compare = Double.compare(rank(this.record.score), rank(other.record.score));
+			if (compare != 0) {
+				return compare;
+			}
+			return this.order > other.order ? -1 : (this.order == other.order ? 0 : 1);
+		}
+	}
+	
+	// Input is the number of scores to keep
+	public TopKRanker(int k) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("k must be positive: " + k);
+		}
+		this.k = k;
+		this.heap = new PriorityQueue<Entry>(k);
+	}
+	
+	// Offers a score to the ranker
+	// Output is true if the score is among the k highest so far
+	public boolean offer(ScoreRecord record) {
+		Entry entry = new Entry(record, this.offered++);
+		if (this.heap.size() < this.k) {
+			this.heap.add(entry);
+			return true;
+		}
+		if (entry.compareTo(this.heap.peek()) > 0) {
+			this.heap.poll();
+			this.heap.add(entry);
+			return true;
+		}
+		return false;
+	}
+	
+	// Output is the kept scores, highest first
+	public List<ScoreRecord> ranked() {
+		List<Entry> entries = new ArrayList<Entry>(this.heap);
+		Collections.sort(entries, Collections.reverseOrder());
+		List<ScoreRecord> ranked = new ArrayList<ScoreRecord>(entries.size());
+		for (Entry entry : entries) {
+			ranked.add(entry.record);
+		}
+		return ranked;
+	}
+	
+	// Output is the number of scores offered so far
+	public long getOffered() {
+		return this.offered;
+	}
+	
+	// Output is the score to sort by, a missing score sorts below every other score
+	static double rank(double score) {
+		return Double.isNaN(score) ? Double.NEGATIVE_INFINITY : score;
+	}
+}
\ No newline at end of file
@@ -1,12 +1,8 @@
 package backEnd;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.MalformedURLException;
@@ -21,8 +17,12 @@ import de.l3s.boilerpipe.extractors.ArticleExtractor;
 
 // The WebpageToTxt class extracts the sentences from each URL in the input file and concatenates them into a single txt file
 public class WebpageToTxt {
-	private static final String END_OF_SENTENCE = "!?."; // The list of punctuation that separates sentences
-	private static final String SPLIT_SYMBOL = "`"; // Default split token
+	// Each thread reuses its own sentence splitter and the buffers inside it
+	private static final ThreadLocal<SentenceSplitter> SPLITTER = new ThreadLocal<SentenceSplitter>() {
+		protected SentenceSplitter initialValue() {
+			return new SentenceSplitter();
+		}
+	};
 	
 	public static void main(String[] args) throws MalformedURLException, IOException, BoilerpipeProcessingException {
 		if (args.length != 2) { // Test if the number of command line arguments is correct
@@ -40,79 +40,61 @@ public class WebpageToTxt {
 	public static String webPageToTxt(String url) throws IOException, BoilerpipeProcessingException {
 		List<String> urlList;
 		if (url.contains(".txt")) { // Load URLS depending on the input format
-			urlList = readTxt(url);
+			urlList = LineReader.readLines(url);
 		} else {
 			urlList = Arrays.asList(url.split("\n"));
 		}
 		return multiWebPageString(urlList);
 	}
 	
-	// Opens and reads text from a txt file
-	// Input is the txt file path
-	// Output is a list structure containing the URLs
-	private static List<String> readTxt(String path) throws IOException {
-		List<String> input = new ArrayList<String>();
-		String line = new String();
-		
-		InputStream is = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
-		
-		try {
-			
-			// Open the streams for reading
-			is = new FileInputStream(path);
-			isr = new InputStreamReader(is);
-			br = new BufferedReader(isr);
-			
-			while ((line = br.readLine()) != null) { // Read in one line at a time where each line is an URL
-				input.add(line);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
-			
-			// When we are done close the streams
-			if (is != null) {
-				is.close();
-			}
-			if (isr != null) {
-				isr.close();
-			}
-			if (br != null) {
-				br.close();
+	// Text extraction with many webpages fetched at the same time
+	// Input is either a list of URLs separated using newline characters or a txt file in the same format, and the fetcher to use
+	// Output is the same as webPageToTxt, failed URLs are kept as a line holding only the URL
+	public static String webPageToTxt(String url, PageFetcher fetcher) throws IOException, InterruptedException {
+		List<String> urlList;
+		if (url.contains(".txt")) { // Load URLS depending on the input format
+			urlList = LineReader.readLines(url);
+		} else {
+			urlList = Arrays.asList(url.split("\n"));
+		}
+		StringBuilder multiWebPage = new StringBuilder();
+		for (PageRecord page : fetcher.fetchAll(urlList)) {
+			if (page.isFailed()) {
+				System.err.println("Could not fetch " + page.url + ": " + page.error);
 			}
+			multiWebPage.append("\n").append(page.toLine());
 		}
-		return input;
+		return multiWebPage.substring(1);
 	}
 	
 	// Grabs the text on a webpage based on its URL
 	// Input is the webpage URL
 	// Output is a string of sentences separated by the default split token
 	private static String webPageString(String url) throws MalformedURLException, BoilerpipeProcessingException {
-		String lineByLine = new String(url);
-		String sentence = new String();
-		Character letter;
+		return webPageRecord(url).toLine();
+	}
+	
+	// Grabs the text on a webpage and splits it into sentences
+	// Input is the webpage URL
+	// Output is a record holding the URL and its sentences
+	public static PageRecord webPageRecord(String url) throws MalformedURLException, BoilerpipeProcessingException {
 		
 		// Extract text from webpage using the Boilerpipe library, the result is a string of characters from the webpage
 		String text = ArticleExtractor.INSTANCE.getText(new URL(url));
-		
-		Integer textLength = text.length();
-		for (int idx = 0; idx < textLength; idx++) { // Parse the string one character at a time
-			letter = text.charAt(idx);
-			if (END_OF_SENTENCE.contains(letter.toString())) { // If we encounter a end of sentence punctuation then add a split token and then the sentence buffer content to the result
-				sentence = sentence.trim() + letter;
-				lineByLine = lineByLine + SPLIT_SYMBOL + sentence;
-				sentence = new String();
-			} else if (Character.isLetterOrDigit(letter)) { // If it is a letter or digit then we accumulate the character in a sentence buffer
-				sentence = sentence + letter;
-			} else if (Character.isWhitespace(letter)) { // If it is any whitespace then we add a space in a sentence buffer
-				sentence = sentence + " ";
-			} else {
-				sentence = sentence.trim() + letter; // Otherwise we just cut off any leading/trailing whitespace and add the character to the sentence buffer
+		return new PageRecord(url, splitSentences(text));
+	}
+	
+	// Splits the extracted webpage text into sentences
+	// Input is the text from the webpage
+	// Output is a list of sentences, each one ending with its punctuation
+	public static List<String> splitSentences(String text) {
+		final List<String> sentences = new ArrayList<String>();
+		SPLITTER.get().split(text, new SentenceSplitter.Callback() {
+			public void sentence(CharSequence sentence) {
+				sentences.add(sentence.toString());
 			}
-		}
-		return lineByLine;
+		});
+		return sentences;
 	}
 	
 	// Writes a string to a txt file
@@ -126,7 +108,7 @@ public class WebpageToTxt {
 			
 			// Open streams for writing
 			os = new FileOutputStream(path);
-			osw = new OutputStreamWriter(os);
+			osw = new OutputStreamWriter(os, "UTF-8");
 			bw = new BufferedWriter(osw);
 			
 			bw.write(output); // Writes the file
@@ -144,14 +126,15 @@ public class WebpageToTxt {
 	// Input is a list structure containing URLs
 	// Output is the corresponding webpage strings separate by newline characters
 	private static String multiWebPageString(List<String> urls) throws MalformedURLException, BoilerpipeProcessingException {
-		String url, multiWebPage = new String();
+		String url;
+		StringBuilder multiWebPage = new StringBuilder();
 		ListIterator<String> urlsIterator = urls.listIterator();
 		while (urlsIterator.hasNext()) {
 			url = urlsIterator.next();
 			if (url.contains("QUERY")) { // If the current line is the original query then we just copy it to the result
-				multiWebPage = multiWebPage + "\n" + url;
+				multiWebPage.append("\n").append(url);
 			} else { // Otherwise if it is a URL then we invoke the webPageString method and save the result
-				multiWebPage = multiWebPage + "\n" + webPageString(url);
+				multiWebPage.append("\n").append(webPageString(url));
 			}
 		}
 		return multiWebPage.substring(1);
@@ -0,0 +1,100 @@
+package backEnd;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.mit.jwi.IRAMDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
+
+// The WithMapReduce class runs the four backEnd modules as one MapReduce job over a batch of query files on the cores of this machine
+// The webpages of all query files are downloaded on the fetch threads while the map tasks parse and decompose them, and each query is scored by one reduce call
+public class WithMapReduce {
+	private static final int FETCH_THREADS = 8; // Webpages downloaded at the same time by the fetcher, on top of the map slots
+	
+	// Map output that does not fit in memory is spilled to this folder while the job runs
+	public static final File SPILL_PATH = new File("mapReduceSpill");
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) { // See if the number of command line input is correct
+			System.out.println("java WithMapReduce <output folder> <query textfile path>...");
+			return;
+		}
+		File outputFolder = new File(args[0]);
+		if (!outputFolder.isDirectory() && !outputFolder.mkdirs()) {
+			throw new IOException("Cannot create output folder " + outputFolder);
+		}
+		
+		// The decomposer reads the compiled snapshot of the dictionary if there is one
+		SynsetGraph graph;
+		IRAMDictionary dictionary = null;
+		if (Decomposer.SNAPSHOT_PATH.isFile()) {
+			graph = CompiledSynsetGraph.open(Decomposer.SNAPSHOT_PATH);
+		} else {
+			dictionary = new RAMDictionary(Decomposer.DICTIONARY_PATH, ILoadPolicy.NO_LOAD);
+			dictionary.open();
+			graph = new JwiSynsetGraph(dictionary);
+		}
+		ExecutorService fetchThreads = Executors.newFixedThreadPool(FETCH_THREADS);
+		try { // The threads are stopped even if the job fails, or else the program would not exit
+			ExpansionCache expansions = new ExpansionCache(graph, ExpansionCache.DEFAULT_MAX_ENTRIES);
+			if (WithoutMapReduce.EXPANSION_CACHE_PATH.isFile()) {
+				expansions.load(WithoutMapReduce.EXPANSION_CACHE_PATH);
+			}
+			Decomposer decomposer = new Decomposer(expansions);
+			PageFetcher fetcher = new PageFetcher(fetchThreads);
+			fetcher.setCache(new PageCache(WithoutMapReduce.PAGE_CACHE_PATH, WithoutMapReduce.PAGE_CACHE_BYTES, WithoutMapReduce.PAGE_CACHE_TTL));
+			
+			// The lines of every query file are the input of one job, the query ID is the position of the file on the command line
+			List<KeyValue<String>> inputs = new ArrayList<KeyValue<String>>();
+			List<List<String>> queries = new ArrayList<List<String>>();
+			for (int q = 1; q < args.length; q++) {
+				List<String> lines = LineReader.readLines(args[q]);
+				queries.add(lines);
+				inputs.addAll(SimSumJob.inputs(String.valueOf(q - 1), lines));
+			}
+			int slots = Runtime.getRuntime().availableProcessors();
+			LocalMapReduce engine = new LocalMapReduce(slots, slots, SPILL_PATH);
+			List<KeyValue<ScoreRecord>> scores = engine.run(SimSumJob.create(fetcher, new Parser(), decomposer, inputs), inputs);
+			
+			// One distance file for each query file, with the scores in the order of its URLs
+			List<Map<String, ScoreRecord>> byQuery = new ArrayList<Map<String, ScoreRecord>>();
+			for (int q = 0; q < queries.size(); q++) {
+				byQuery.add(new HashMap<String, ScoreRecord>());
+			}
+			for (KeyValue<ScoreRecord> score : scores) {
+				byQuery.get(Integer.parseInt(score.key)).put(score.value.url, score.value);
+			}
+			for (int q = 0; q < queries.size(); q++) {
+				StringBuilder output = new StringBuilder();
+				for (String line : queries.get(q)) {
+					line = line.trim();
+					if (line.isEmpty() || line.contains("QUERY")) {
+						continue;
+					}
+					ScoreRecord score = byQuery.get(q).get(line);
+					if (score == null) { // Every URL keeps its line
+						score = ScoreRecord.failed(line);
+					}
+					output.append(output.length() == 0 ? "" : "\n").append(score.toLine());
+				}
+				SemanticDistance.writeTxt(new File(outputFolder, new File(args[q + 1]).getName()).getPath(), output.toString());
+			}
+			
+			System.out.println(engine);
+			System.out.println(decomposer.getStats());
+			expansions.save(WithoutMapReduce.EXPANSION_CACHE_PATH);
+		} finally {
+			fetchThreads.shutdown();
+			if (dictionary != null) {
+				dictionary.close();
+			}
+		}
+	}
+}
\ No newline at end of file
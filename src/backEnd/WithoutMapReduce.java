@@ -1,38 +1,71 @@
 package backEnd;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import de.l3s.boilerpipe.BoilerpipeProcessingException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import edu.mit.jwi.IRAMDictionary;
+import edu.mit.jwi.RAMDictionary;
+import edu.mit.jwi.data.ILoadPolicy;
 
 public class WithoutMapReduce {
-	public static final String TAGGER_MODEL_PATH = "simsum/stanford-postagger-2013-06-20/models/english-left3words-distsim.tagger";
+	public static final String TAGGER_MODEL_PATH = Parser.TAGGER_MODEL_PATH;
+	private static final int FETCH_THREADS = 8; // The number of webpages downloaded at the same time
+	
+	// Fetched webpages are kept on disk so popular URLs are not downloaded and extracted again for every query
+	public static final File PAGE_CACHE_PATH = new File("pageCache");
+	public static final long PAGE_CACHE_BYTES = 256L * 1024 * 1024;
+	public static final long PAGE_CACHE_TTL = 24L * 60 * 60 * 1000; // One day
+	
+	// The synsets reached from each term are saved between runs, since the same head words come back for every query
+	public static final File EXPANSION_CACHE_PATH = new File("expansionCache.bin");
 	
-	public static void main(String[] args) throws MalformedURLException, IOException, BoilerpipeProcessingException, InterruptedException {
-		
-		String[] webpageToTxtArgs = new String[2];
-		webpageToTxtArgs[0] = "dummyText/Who was the first person to walk on the moon.txt";
-		webpageToTxtArgs[1] = "dummyText/webpages.txt";
-		WebpageToTxt.main(webpageToTxtArgs);
-		
-		Thread.sleep(4000); // Delay to allow time to finish writing intermediate result to txt file
-		
-		String[] parserArgs = new String[2];
-		parserArgs[0] = "dummyText/webpages.txt";
-		parserArgs[1] = "dummyText/keywords.txt";
-		Parser.main(parserArgs);
-		
-		Thread.sleep(4000); // Delay to allow time to finish writing intermediate result to txt file
-		
-		String[] decomposerArgs = new String[2];
-		decomposerArgs[0] = "dummyText/keywords.txt";
-		decomposerArgs[1] = "dummyText/features.txt";
-		Decomposer.main(decomposerArgs);
-		
-		Thread.sleep(4000); // Delay to allow time to finish writing intermediate result to txt file
-		
-		String[] distanceArgs = new String[2];
-		distanceArgs[0] = "dummyText/features.txt";
-		distanceArgs[1] = "dummyText/distance.txt";
-		SemanticDistance.main(distanceArgs);
+	public static void main(String[] args) throws IOException, InterruptedException {
+		// The decomposer reads the compiled snapshot of the dictionary if there is one
+		SynsetGraph graph;
+		IRAMDictionary dictionary = null;
+		if (Decomposer.SNAPSHOT_PATH.isFile()) {
+			graph = CompiledSynsetGraph.open(Decomposer.SNAPSHOT_PATH);
+		} else {
+			dictionary = new RAMDictionary(Decomposer.DICTIONARY_PATH, ILoadPolicy.NO_LOAD);
+			dictionary.open();
+			graph = new JwiSynsetGraph(dictionary);
+		}
+		// Each webpage is parsed and each list of keywords is decomposed as a task of its own, on all cores
+		ForkJoinPool workThreads = new ForkJoinPool();
+		ExecutorService fetchThreads = Executors.newFixedThreadPool(FETCH_THREADS);
+		try { // The threads are stopped even if a module fails, or else the program would not exit
+			ExpansionCache expansions = new ExpansionCache(graph, ExpansionCache.DEFAULT_MAX_ENTRIES);
+			if (EXPANSION_CACHE_PATH.isFile()) {
+				expansions.load(EXPANSION_CACHE_PATH);
+			}
+			Decomposer decomposer = new ParallelDecomposer(expansions, workThreads);
+			
+			// The four modules run at the same time and hand their records straight to the next module
+			Pipeline pipeline = new Pipeline(new ParallelParser(TaggerRegistry.get(TAGGER_MODEL_PATH), workThreads), decomposer);
+			PageFetcher fetcher = new PageFetcher(fetchThreads);
+			fetcher.setCache(new PageCache(PAGE_CACHE_PATH, PAGE_CACHE_BYTES, PAGE_CACHE_TTL));
+			pipeline.setFetcher(fetcher);
+			
+			// The intermediate results are still written to txt files so they can be inspected
+			pipeline.setPageSink("dummyText/webpages.txt");
+			pipeline.setKeywordSink("dummyText/keywords.txt");
+			pipeline.setFeatureSink("dummyText/features.txt");
+			pipeline.setDistanceSink("dummyText/distance.txt");
+			pipeline.run(LineReader.readLines("dummyText/Who was the first person to walk on the moon.txt"));
+			
+			System.out.println(LemmaCache.shared());
+			System.out.println(expansions);
+			System.out.println(decomposer.getStats());
+			expansions.save(EXPANSION_CACHE_PATH);
+		} finally {
+			fetchThreads.shutdown();
+			workThreads.shutdown();
+			if (dictionary != null) {
+				dictionary.close();
+			}
+		}
 	}
 }
\ No newline at end of file